@@ -0,0 +1,306 @@
+package info.kgeorgiy.ja.nesterenko.benchmark;
+
+import info.kgeorgiy.ja.nesterenko.concurrent.IterativeParallelism;
+import info.kgeorgiy.ja.nesterenko.concurrent.ParallelMapperImpl;
+import info.kgeorgiy.java.advanced.concurrent.AdvancedIP;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1, timeUnit = TimeUnit.SECONDS)
+@Measurement(iterations = 5, time = 1, timeUnit = TimeUnit.SECONDS)
+@Fork(1)
+public class IterativeParallelismBenchmark {
+    private static final AdvancedIP.Monoid<Long> SUM = new AdvancedIP.Monoid<>(0L, Long::sum);
+
+    @State(Scope.Benchmark)
+    public static class Input {
+        @Param({"10", "1000", "100000", "1000000"})
+        private int size;
+
+        private List<Integer> values;
+
+        @Setup(Level.Trial)
+        public void setup() {
+            final Random random = new Random(3257984375983475L);
+            values = random.ints(size).boxed().collect(Collectors.toUnmodifiableList());
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class Workload {
+        @Param({"0", "100"})
+        private long cost;
+
+        private Function<Integer, Long> lift;
+        private Predicate<Integer> even;
+        private Predicate<Integer> missing;
+
+        @Setup(Level.Trial)
+        public void setup() {
+            final long tokens = cost;
+            lift = value -> {
+                Blackhole.consumeCPU(tokens);
+                return (long) value;
+            };
+            even = value -> {
+                Blackhole.consumeCPU(tokens);
+                return value % 2 == 0;
+            };
+            missing = value -> {
+                Blackhole.consumeCPU(tokens);
+                return value == Integer.MIN_VALUE;
+            };
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class Sequential {
+        private final Runner runner = new StreamRunner(null);
+    }
+
+    @State(Scope.Benchmark)
+    public static class Parallel {
+        @Param({"1", "2", "4", "8"})
+        private int threads;
+
+        @Param({"parallel-stream", "threads", "mapper", "fork-join"})
+        private String mode;
+
+        private Runner runner;
+
+        @Setup(Level.Trial)
+        public void setup() {
+            switch (mode) {
+                case "parallel-stream":
+                    runner = new StreamRunner(new ForkJoinPool(threads));
+                    break;
+                case "threads":
+                    runner = new IterativeRunner(new IterativeParallelism(), threads, null);
+                    break;
+                case "mapper":
+                    final ParallelMapperImpl mapper = new ParallelMapperImpl(threads);
+                    runner = new IterativeRunner(new IterativeParallelism(mapper), threads, mapper::close);
+                    break;
+                case "fork-join":
+                    final ForkJoinPool pool = new ForkJoinPool(threads);
+                    runner = new IterativeRunner(new IterativeParallelism(pool), threads, pool::shutdown);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown mode: " + mode);
+            }
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            runner.close();
+        }
+    }
+
+    private interface Runner {
+        <T, U> List<U> map(List<T> values, Function<? super T, ? extends U> f) throws Exception;
+
+        <T> List<T> filter(List<T> values, Predicate<? super T> predicate) throws Exception;
+
+        <T> T maximum(List<T> values, Comparator<? super T> comparator) throws Exception;
+
+        String join(List<?> values) throws Exception;
+
+        <T, R> R mapReduce(List<T> values, Function<T, R> lift, AdvancedIP.Monoid<R> monoid) throws Exception;
+
+        <T> boolean any(List<T> values, Predicate<? super T> predicate) throws Exception;
+
+        default void close() {
+        }
+    }
+
+    private static class StreamRunner implements Runner {
+        private final ForkJoinPool pool;
+
+        private StreamRunner(ForkJoinPool pool) {
+            this.pool = pool;
+        }
+
+        private <T> Stream<T> stream(List<T> values) {
+            return pool == null ? values.stream() : values.parallelStream();
+        }
+
+        private <R> R run(Callable<R> task) throws Exception {
+            return pool == null ? task.call() : pool.submit(task).get();
+        }
+
+        @Override
+        public <T, U> List<U> map(List<T> values, Function<? super T, ? extends U> f) throws Exception {
+            return run(() -> stream(values).<U>map(f).collect(Collectors.toList()));
+        }
+
+        @Override
+        public <T> List<T> filter(List<T> values, Predicate<? super T> predicate) throws Exception {
+            return run(() -> stream(values).filter(predicate).collect(Collectors.toList()));
+        }
+
+        @Override
+        public <T> T maximum(List<T> values, Comparator<? super T> comparator) throws Exception {
+            return run(() -> stream(values).max(comparator).orElse(null));
+        }
+
+        @Override
+        public String join(List<?> values) throws Exception {
+            return run(() -> stream(values).map(Object::toString).collect(Collectors.joining()));
+        }
+
+        @Override
+        public <T, R> R mapReduce(List<T> values, Function<T, R> lift, AdvancedIP.Monoid<R> monoid) throws Exception {
+            return run(() -> stream(values).map(lift).reduce(monoid.getIdentity(), monoid.getOperator()));
+        }
+
+        @Override
+        public <T> boolean any(List<T> values, Predicate<? super T> predicate) throws Exception {
+            return run(() -> stream(values).anyMatch(predicate));
+        }
+
+        @Override
+        public void close() {
+            if (pool != null) {
+                pool.shutdown();
+            }
+        }
+    }
+
+    private static class IterativeRunner implements Runner {
+        private final IterativeParallelism parallelism;
+        private final int threads;
+        private final AutoCloseable resource;
+
+        private IterativeRunner(IterativeParallelism parallelism, int threads, AutoCloseable resource) {
+            this.parallelism = parallelism;
+            this.threads = threads;
+            this.resource = resource;
+        }
+
+        @Override
+        public <T, U> List<U> map(List<T> values, Function<? super T, ? extends U> f) throws Exception {
+            return parallelism.map(threads, values, f);
+        }
+
+        @Override
+        public <T> List<T> filter(List<T> values, Predicate<? super T> predicate) throws Exception {
+            return parallelism.filter(threads, values, predicate);
+        }
+
+        @Override
+        public <T> T maximum(List<T> values, Comparator<? super T> comparator) throws Exception {
+            return parallelism.maximum(threads, values, comparator);
+        }
+
+        @Override
+        public String join(List<?> values) throws Exception {
+            return parallelism.join(threads, values);
+        }
+
+        @Override
+        public <T, R> R mapReduce(List<T> values, Function<T, R> lift, AdvancedIP.Monoid<R> monoid) throws Exception {
+            return parallelism.mapReduce(threads, values, lift, monoid);
+        }
+
+        @Override
+        public <T> boolean any(List<T> values, Predicate<? super T> predicate) throws Exception {
+            return parallelism.any(threads, values, predicate);
+        }
+
+        @Override
+        public void close() {
+            if (resource != null) {
+                try {
+                    resource.close();
+                } catch (Exception e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+        }
+    }
+
+    @Benchmark
+    public List<Long> map(Input input, Workload workload, Parallel parallel) throws Exception {
+        return parallel.runner.map(input.values, workload.lift);
+    }
+
+    @Benchmark
+    public List<Integer> filter(Input input, Workload workload, Parallel parallel) throws Exception {
+        return parallel.runner.filter(input.values, workload.even);
+    }
+
+    @Benchmark
+    public Integer maximum(Input input, Parallel parallel) throws Exception {
+        return parallel.runner.maximum(input.values, Comparator.<Integer>naturalOrder());
+    }
+
+    @Benchmark
+    public String join(Input input, Parallel parallel) throws Exception {
+        return parallel.runner.join(input.values);
+    }
+
+    @Benchmark
+    public Long mapReduce(Input input, Workload workload, Parallel parallel) throws Exception {
+        return parallel.runner.mapReduce(input.values, workload.lift, SUM);
+    }
+
+    @Benchmark
+    public boolean any(Input input, Workload workload, Parallel parallel) throws Exception {
+        return parallel.runner.any(input.values, workload.missing);
+    }
+
+    @Benchmark
+    public List<Long> sequentialMap(Input input, Workload workload, Sequential sequential) throws Exception {
+        return sequential.runner.map(input.values, workload.lift);
+    }
+
+    @Benchmark
+    public List<Integer> sequentialFilter(Input input, Workload workload, Sequential sequential) throws Exception {
+        return sequential.runner.filter(input.values, workload.even);
+    }
+
+    @Benchmark
+    public Integer sequentialMaximum(Input input, Sequential sequential) throws Exception {
+        return sequential.runner.maximum(input.values, Comparator.<Integer>naturalOrder());
+    }
+
+    @Benchmark
+    public String sequentialJoin(Input input, Sequential sequential) throws Exception {
+        return sequential.runner.join(input.values);
+    }
+
+    @Benchmark
+    public Long sequentialMapReduce(Input input, Workload workload, Sequential sequential) throws Exception {
+        return sequential.runner.mapReduce(input.values, workload.lift, SUM);
+    }
+
+    @Benchmark
+    public boolean sequentialAny(Input input, Workload workload, Sequential sequential) throws Exception {
+        return sequential.runner.any(input.values, workload.missing);
+    }
+}
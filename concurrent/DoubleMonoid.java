@@ -0,0 +1,21 @@
+package info.kgeorgiy.ja.nesterenko.concurrent;
+
+import java.util.function.DoubleBinaryOperator;
+
+public class DoubleMonoid {
+    private final double identity;
+    private final DoubleBinaryOperator operator;
+
+    public DoubleMonoid(double identity, DoubleBinaryOperator operator) {
+        this.identity = identity;
+        this.operator = operator;
+    }
+
+    public double getIdentity() {
+        return identity;
+    }
+
+    public DoubleBinaryOperator getOperator() {
+        return operator;
+    }
+}
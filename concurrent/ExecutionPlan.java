@@ -0,0 +1,49 @@
+package info.kgeorgiy.ja.nesterenko.concurrent;
+
+public class ExecutionPlan {
+    private final int requestedThreads;
+    private final int threads;
+    private final int sampledElements;
+    private final double nanosPerElement;
+    private final long estimatedNanos;
+
+    public ExecutionPlan(int requestedThreads, int threads, int sampledElements, double nanosPerElement,
+                         long estimatedNanos) {
+        this.requestedThreads = requestedThreads;
+        this.threads = threads;
+        this.sampledElements = sampledElements;
+        this.nanosPerElement = nanosPerElement;
+        this.estimatedNanos = estimatedNanos;
+    }
+
+    public boolean isInline() {
+        return threads <= 1;
+    }
+
+    public int getRequestedThreads() {
+        return requestedThreads;
+    }
+
+    public int getThreads() {
+        return threads;
+    }
+
+    public int getSampledElements() {
+        return sampledElements;
+    }
+
+    public long getEstimatedNanos() {
+        return estimatedNanos;
+    }
+
+    public double getNanosPerElement() {
+        return nanosPerElement;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s after sampling %d elements (%.1f ns/element), estimated remaining work %.3f ms",
+                isInline() ? "inline" : threads + " of " + requestedThreads + " threads",
+                sampledElements, getNanosPerElement(), estimatedNanos / 1e6);
+    }
+}
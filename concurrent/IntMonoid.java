@@ -0,0 +1,21 @@
+package info.kgeorgiy.ja.nesterenko.concurrent;
+
+import java.util.function.IntBinaryOperator;
+
+public class IntMonoid {
+    private final int identity;
+    private final IntBinaryOperator operator;
+
+    public IntMonoid(int identity, IntBinaryOperator operator) {
+        this.identity = identity;
+        this.operator = operator;
+    }
+
+    public int getIdentity() {
+        return identity;
+    }
+
+    public IntBinaryOperator getOperator() {
+        return operator;
+    }
+}
@@ -1,46 +1,332 @@
 package info.kgeorgiy.ja.nesterenko.concurrent;
 
 import info.kgeorgiy.java.advanced.concurrent.AdvancedIP;
+import info.kgeorgiy.java.advanced.mapper.ParallelMapper;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.DoubleBinaryOperator;
 import java.util.function.Function;
+import java.util.function.IntBinaryOperator;
+import java.util.function.LongBinaryOperator;
 import java.util.function.Predicate;
-import java.util.stream.Collectors;
+import java.util.function.ToDoubleFunction;
+import java.util.function.ToIntFunction;
+import java.util.function.ToLongFunction;
 import java.util.stream.Stream;
 
 public class IterativeParallelism implements AdvancedIP {
+    private final ParallelMapper mapper;
+    private final ThreadFactory threadFactory;
+    private final ForkJoinPool forkJoinPool;
+    private final boolean costModel;
+    private volatile SchedulingReport lastReport;
+    private volatile ExecutionPlan lastPlan;
+
+    private static final int CHUNKS_PER_THREAD = 16;
+    private static final int MAX_SURPLUS_TASKS = 3;
+    private static final int MIN_SAMPLE = 4;
+    private static final long MIN_SAMPLE_NANOS = 20_000;
+    private static final long THREAD_START_NANOS = 50_000;
+    private static final long TASK_SUBMIT_NANOS = 5_000;
+    private static final int MIN_OVERHEADS_PER_THREAD = 4;
+
+    public IterativeParallelism() {
+        this(null, Thread::new, null);
+    }
+
+    public IterativeParallelism(ParallelMapper mapper) {
+        this(mapper, null, null);
+    }
+
+    public IterativeParallelism(ThreadFactory threadFactory) {
+        this(null, threadFactory, null);
+    }
+
+    public IterativeParallelism(ForkJoinPool forkJoinPool) {
+        this(null, null, forkJoinPool);
+    }
+
+    private IterativeParallelism(ParallelMapper mapper, ThreadFactory threadFactory, ForkJoinPool forkJoinPool) {
+        this(mapper, threadFactory, forkJoinPool, false);
+    }
+
+    private IterativeParallelism(ParallelMapper mapper, ThreadFactory threadFactory, ForkJoinPool forkJoinPool,
+                                 boolean costModel) {
+        this.mapper = mapper;
+        this.threadFactory = threadFactory;
+        this.forkJoinPool = forkJoinPool;
+        this.costModel = costModel;
+    }
+
+    public static IterativeParallelism withVirtualThreads() {
+        return new IterativeParallelism(virtualThreadFactory());
+    }
+
+    private static ThreadFactory virtualThreadFactory() {
+        try {
+            final Class<?> builder = Class.forName("java.lang.Thread$Builder");
+            Object virtual = Thread.class.getMethod("ofVirtual").invoke(null);
+            virtual = builder.getMethod("name", String.class, long.class).invoke(virtual, "iterative-parallelism-", 0L);
+            return (ThreadFactory) builder.getMethod("factory").invoke(virtual);
+        } catch (ReflectiveOperationException e) {
+            throw new UnsupportedOperationException("Virtual threads are not available on Java "
+                    + Runtime.version().feature(), e);
+        }
+    }
+
+    public IterativeParallelism withCostModel() {
+        return new IterativeParallelism(mapper, threadFactory, forkJoinPool, true);
+    }
+
     private <T, R> R concurrentReducer(final int threads,
                                        final List<? extends T> values,
                                        final Function<? super Stream<? extends T>, R> applyFunction,
                                        final Function<? super Stream<R>, R> reduceFunction) throws InterruptedException {
-        return reduceFunction.apply(concurrentApplier(applyFunction, split(threads, values)).stream());
+        return reduceFunction.apply(applyChunks(threads, values, applyFunction).stream());
+    }
+
+    private <T, R> List<R> applyChunks(final int threads,
+                                       final List<? extends T> values,
+                                       final Function<? super Stream<? extends T>, R> applyFunction) throws InterruptedException {
+        return rangeApplier(threads, values.size(), (from, to) -> applyFunction.apply(values.subList(from, to).stream()));
+    }
+
+    <R> List<R> rangeApplier(final int threads,
+                             final int len,
+                             final RangeFunction<R> applyFunction) throws InterruptedException {
+        return rangeApplier(threads, len, applyFunction, null);
+    }
+
+    private <R> List<R> rangeApplier(final int threads,
+                                     final int len,
+                                     final RangeFunction<R> applyFunction,
+                                     final ExecutionPlan[] chosenPlan) throws InterruptedException {
+        if (!costModel) {
+            return parallelApplier(threads, 0, len, applyFunction);
+        }
+        final List<R> res = new ArrayList<>();
+        int sampled = 0;
+        int segments = 0;
+        double nanosPerElement = 0;
+        long nanos = 0;
+        for (int size = MIN_SAMPLE; sampled < len && (segments < 2 || nanos < MIN_SAMPLE_NANOS); size *= 2) {
+            final int to = (int) Math.min(len, (long) sampled + size);
+            final long start = System.nanoTime();
+            res.add(applyFunction.apply(sampled, to));
+            nanos = System.nanoTime() - start;
+            nanosPerElement = (double) nanos / (to - sampled);
+            sampled = to;
+            segments++;
+        }
+        final ExecutionPlan plan = plan(threads, len - sampled, sampled, nanosPerElement);
+        lastPlan = plan;
+        if (chosenPlan != null) {
+            chosenPlan[0] = plan;
+        }
+        if (sampled < len) {
+            if (plan.isInline()) {
+                res.add(applyFunction.apply(sampled, len));
+            } else {
+                res.addAll(parallelApplier(plan.getThreads(), sampled, len, applyFunction));
+            }
+        }
+        return res;
+    }
+
+    private ExecutionPlan plan(final int threads, final int remaining, final int sampled, final double nanosPerElement) {
+        final long estimated = (long) (nanosPerElement * remaining);
+        final long overhead = mapper == null && forkJoinPool == null ? THREAD_START_NANOS : TASK_SUBMIT_NANOS;
+        final long useful = estimated / (overhead * MIN_OVERHEADS_PER_THREAD);
+        final int effective = (int) Math.max(1, Math.min(Math.min(threads, remaining), useful));
+        return new ExecutionPlan(threads, effective, sampled, nanosPerElement, estimated);
+    }
+
+    private <R> List<R> parallelApplier(final int threads,
+                                        final int from,
+                                        final int to,
+                                        final RangeFunction<R> applyFunction) throws InterruptedException {
+        if (forkJoinPool != null) {
+            return adaptiveApplier(threads, from, to, applyFunction);
+        }
+        return concurrentApplier(range -> applyFunction.apply(range.from, range.to), split(threads, from, to));
+    }
+
+    public <T> ParallelPipeline<T> parallel(int threads, List<? extends T> values) {
+        return ParallelPipeline.of(this, threads, values);
+    }
+
+    public <T> ParallelPipeline<T> parallel(int threads, Iterator<? extends T> values) {
+        return ParallelPipeline.of(this, threads, values);
+    }
+
+    public <T> ParallelPipeline<T> parallel(int threads, Spliterator<? extends T> values) {
+        return ParallelPipeline.of(this, threads, Spliterators.iterator(values));
+    }
+
+    public <T> ParallelPipeline<T> parallel(int threads, Stream<? extends T> values) {
+        return ParallelPipeline.of(this, threads, values.iterator());
+    }
+
+    public SchedulingReport getLastReport() {
+        return lastReport;
+    }
+
+    public ExecutionPlan getLastPlan() {
+        return lastPlan;
+    }
+
+    @FunctionalInterface
+    interface RangeFunction<R> {
+        R apply(int from, int to);
+    }
+
+    private static class Range {
+        private final int from;
+        private final int to;
+
+        private Range(int from, int to) {
+            this.from = from;
+            this.to = to;
+        }
+    }
+
+    private static class Chunk {
+        private final int from;
+        private final long nanos;
+        private final Thread worker;
+
+        private Chunk(int from, long nanos, Thread worker) {
+            this.from = from;
+            this.nanos = nanos;
+            this.worker = worker;
+        }
+    }
+
+    private static class AdaptiveTask<R> extends RecursiveTask<List<R>> {
+        private final int from;
+        private final int to;
+        private final int minChunk;
+        private final RangeFunction<R> applyFunction;
+        private final Queue<Chunk> chunks;
+
+        private AdaptiveTask(int from, int to, int minChunk, RangeFunction<R> applyFunction, Queue<Chunk> chunks) {
+            this.from = from;
+            this.to = to;
+            this.minChunk = minChunk;
+            this.applyFunction = applyFunction;
+            this.chunks = chunks;
+        }
+
+        @Override
+        protected List<R> compute() {
+            if (to - from > minChunk && getSurplusQueuedTaskCount() <= MAX_SURPLUS_TASKS) {
+                final int mid = (from + to) >>> 1;
+                AdaptiveTask<R> left = new AdaptiveTask<>(from, mid, minChunk, applyFunction, chunks);
+                AdaptiveTask<R> right = new AdaptiveTask<>(mid, to, minChunk, applyFunction, chunks);
+                right.fork();
+                List<R> res = new ArrayList<>(left.compute());
+                res.addAll(right.join());
+                return res;
+            }
+            final long start = System.nanoTime();
+            R result = applyFunction.apply(from, to);
+            chunks.add(new Chunk(from, System.nanoTime() - start, Thread.currentThread()));
+            return Collections.singletonList(result);
+        }
+    }
+
+    private <R> List<R> adaptiveApplier(final int threads,
+                                        final int from,
+                                        final int to,
+                                        final RangeFunction<R> applyFunction) throws InterruptedException {
+        final int minChunk = Math.max(1, (to - from) / (Math.max(1, threads) * CHUNKS_PER_THREAD));
+        final Queue<Chunk> chunks = new ConcurrentLinkedQueue<>();
+        final List<R> res = awaitTask(forkJoinPool.submit(new AdaptiveTask<>(from, to, minChunk, applyFunction, chunks)));
+        lastReport = report(threads, from, to, chunks);
+        return res;
+    }
+
+    private static <R> R awaitTask(final ForkJoinTask<R> task) throws InterruptedException {
+        try {
+            return task.get();
+        } catch (InterruptedException e) {
+            task.cancel(true);
+            throw e;
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            if (e.getCause() instanceof Error) {
+                throw (Error) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        }
     }
 
-    private <T, R> List<R> concurrentApplier(final Function<? super Stream<? extends T>, R> applyFunction,
-                                             final List<Stream<? extends T>> parts) throws InterruptedException {
+    private static SchedulingReport report(final int threads, final int from, final int to, final Queue<Chunk> chunks) {
+        final int len = to - from;
+        final Map<Thread, Long> perWorker = new HashMap<>();
+        final int blocks = Math.max(1, Math.min(len, threads));
+        final long[] perBlock = new long[blocks];
+        long total = 0;
+        for (Chunk chunk : chunks) {
+            perWorker.merge(chunk.worker, chunk.nanos, Long::sum);
+            perBlock[(int) ((long) (chunk.from - from) * blocks / Math.max(1, len))] += chunk.nanos;
+            total += chunk.nanos;
+        }
+        return new SchedulingReport(chunks.size(), perWorker.size(), total,
+                perWorker.values().stream().mapToLong(Long::longValue).max().orElse(0),
+                Arrays.stream(perBlock).max().orElse(0));
+    }
+
+    private <P, R> List<R> concurrentApplier(final Function<? super P, R> applyFunction,
+                                             final List<P> parts) throws InterruptedException {
+        if (mapper != null) {
+            return mapper.map(applyFunction, parts);
+        }
         final int partsCnt = parts.size();
         final List<Thread> threads = new ArrayList<>();
         final List<R> res = new ArrayList<>(Collections.nCopies(partsCnt, null));
+        final AtomicReference<RuntimeException> failure = new AtomicReference<>();
         for (int i = 0; i < partsCnt; i++) {
             final int index = i;
-            Thread thread = new Thread(() -> res.set(index, applyFunction.apply(parts.get(index))));
+            Thread thread = threadFactory.newThread(() -> {
+                try {
+                    res.set(index, applyFunction.apply(parts.get(index)));
+                } catch (RuntimeException e) {
+                    if (failure.compareAndSet(null, e)) {
+                        threads.forEach(Thread::interrupt);
+                    }
+                }
+            });
             threads.add(thread);
-            thread.start();
         }
+        threads.forEach(Thread::start);
         joinThreads(threads);
+        if (failure.get() != null) {
+            throw failure.get();
+        }
         return res;
     }
 
-    private static <T> List<Stream<? extends T>> split(int threads, final List<? extends T> values) {
-        final int len = values.size();
-        threads = Math.min(len, threads);
+    private static List<Range> split(int threads, final int from, final int to) {
+        final int len = to - from;
+        threads = Math.max(1, Math.min(len, threads));
         final int blockSize = len / threads;
         int rem = len % threads;
-        final List<Stream<? extends T>> res = new ArrayList<>();
-        int l = 0;
+        final List<Range> res = new ArrayList<>();
+        int l = from;
         for (int i = 0; i < threads; i++) {
             final int r = l + blockSize + (rem-- > 0 ? 1 : 0);
-            res.add(values.subList(l, r).stream());
+            res.add(new Range(l, r));
             l = r;
         }
         return res;
@@ -84,30 +370,206 @@ public class IterativeParallelism implements AdvancedIP {
                 monoidReducer);
     }
 
+    public int reduce(int threads, int[] values, IntMonoid monoid) throws InterruptedException {
+        final IntBinaryOperator operator = monoid.getOperator();
+        final int identity = monoid.getIdentity();
+        final List<Integer> parts = rangeApplier(threads, values.length, (from, to) -> {
+            int result = identity;
+            for (int i = from; i < to; i++) {
+                result = operator.applyAsInt(result, values[i]);
+            }
+            return result;
+        });
+        int result = identity;
+        for (final int part : parts) {
+            result = operator.applyAsInt(result, part);
+        }
+        return result;
+    }
+
+    public <T> int mapReduceToInt(int threads, List<T> values, ToIntFunction<? super T> lift, IntMonoid monoid)
+            throws InterruptedException {
+        final IntBinaryOperator operator = monoid.getOperator();
+        final int identity = monoid.getIdentity();
+        final List<Integer> parts = rangeApplier(threads, values.size(), (from, to) -> {
+            int result = identity;
+            for (final T value : values.subList(from, to)) {
+                result = operator.applyAsInt(result, lift.applyAsInt(value));
+            }
+            return result;
+        });
+        int result = identity;
+        for (final int part : parts) {
+            result = operator.applyAsInt(result, part);
+        }
+        return result;
+    }
+
+    public long reduce(int threads, long[] values, LongMonoid monoid) throws InterruptedException {
+        final LongBinaryOperator operator = monoid.getOperator();
+        final long identity = monoid.getIdentity();
+        final List<Long> parts = rangeApplier(threads, values.length, (from, to) -> {
+            long result = identity;
+            for (int i = from; i < to; i++) {
+                result = operator.applyAsLong(result, values[i]);
+            }
+            return result;
+        });
+        long result = identity;
+        for (final long part : parts) {
+            result = operator.applyAsLong(result, part);
+        }
+        return result;
+    }
+
+    public <T> long mapReduceToLong(int threads, List<T> values, ToLongFunction<? super T> lift, LongMonoid monoid)
+            throws InterruptedException {
+        final LongBinaryOperator operator = monoid.getOperator();
+        final long identity = monoid.getIdentity();
+        final List<Long> parts = rangeApplier(threads, values.size(), (from, to) -> {
+            long result = identity;
+            for (final T value : values.subList(from, to)) {
+                result = operator.applyAsLong(result, lift.applyAsLong(value));
+            }
+            return result;
+        });
+        long result = identity;
+        for (final long part : parts) {
+            result = operator.applyAsLong(result, part);
+        }
+        return result;
+    }
+
+    public double reduce(int threads, double[] values, DoubleMonoid monoid) throws InterruptedException {
+        final DoubleBinaryOperator operator = monoid.getOperator();
+        final double identity = monoid.getIdentity();
+        final List<Double> parts = rangeApplier(threads, values.length, (from, to) -> {
+            double result = identity;
+            for (int i = from; i < to; i++) {
+                result = operator.applyAsDouble(result, values[i]);
+            }
+            return result;
+        });
+        double result = identity;
+        for (final double part : parts) {
+            result = operator.applyAsDouble(result, part);
+        }
+        return result;
+    }
+
+    public <T> double mapReduceToDouble(int threads, List<T> values, ToDoubleFunction<? super T> lift, DoubleMonoid monoid)
+            throws InterruptedException {
+        final DoubleBinaryOperator operator = monoid.getOperator();
+        final double identity = monoid.getIdentity();
+        final List<Double> parts = rangeApplier(threads, values.size(), (from, to) -> {
+            double result = identity;
+            for (final T value : values.subList(from, to)) {
+                result = operator.applyAsDouble(result, lift.applyAsDouble(value));
+            }
+            return result;
+        });
+        double result = identity;
+        for (final double part : parts) {
+            result = operator.applyAsDouble(result, part);
+        }
+        return result;
+    }
+
     @Override
     public String join(int threads, List<?> values) throws InterruptedException {
-        return concurrentReducer(threads,
-                values,
-                stream -> stream.map(Object::toString).collect(Collectors.joining()),
-                stream -> stream.collect(Collectors.joining()));
+        final List<StringBuilder> parts = new ArrayList<>(rangeApplier(threads, values.size(), (from, to) -> {
+            final StringBuilder part = new StringBuilder();
+            for (final Object value : values.subList(from, to)) {
+                part.append(value);
+            }
+            return part;
+        }));
+        long length = 0;
+        for (final StringBuilder part : parts) {
+            length += part.length();
+        }
+        if (length > Integer.MAX_VALUE) {
+            throw new OutOfMemoryError("Joined string is too long: " + length);
+        }
+        final StringBuilder sb = new StringBuilder((int) length);
+        for (int i = 0; i < parts.size(); i++) {
+            sb.append(parts.get(i));
+            parts.set(i, null);
+        }
+        return sb.toString();
     }
 
-    private <T, R> List<R> appliedList(int threads,
-                                       final List<? extends T> values,
-                                       final Function<Stream<? extends T>, Stream<? extends R>> streamFunction) throws InterruptedException {
-        return concurrentReducer(threads, values,
-                stream -> streamFunction.apply(stream).collect(Collectors.toList()),
-                stream -> stream.flatMap(Collection::stream).collect(Collectors.toList()));
+    private static class CountedRange {
+        private final Range range;
+        private final int count;
+
+        private CountedRange(Range range, int count) {
+            this.range = range;
+            this.count = count;
+        }
     }
 
     @Override
     public <T> List<T> filter(int threads, List<? extends T> values, Predicate<? super T> predicate) throws InterruptedException {
-        return appliedList(threads, values, stream -> stream.filter(predicate));
+        final boolean[] matches = new boolean[values.size()];
+        final ExecutionPlan[] plan = new ExecutionPlan[1];
+        final List<CountedRange> ranges = rangeApplier(threads, values.size(), (from, to) -> {
+            int count = 0;
+            int i = from;
+            for (final T value : values.subList(from, to)) {
+                if (matches[i++] = predicate.test(value)) {
+                    count++;
+                }
+            }
+            return new CountedRange(new Range(from, to), count);
+        }, plan);
+        final List<CountedRange> parts = new ArrayList<>();
+        int total = 0;
+        for (final CountedRange counted : ranges) {
+            if (counted.count > 0) {
+                parts.add(new CountedRange(counted.range, total));
+                total += counted.count;
+            }
+        }
+        final Object[] res = new Object[total];
+        final RangeFunction<Void> scatter = (from, to) -> {
+            for (final CountedRange part : parts.subList(from, to)) {
+                final Range range = part.range;
+                int i = range.from;
+                int offset = part.count;
+                for (final T value : values.subList(range.from, range.to)) {
+                    if (matches[i++]) {
+                        res[offset++] = value;
+                    }
+                }
+            }
+            return null;
+        };
+        final int scatterThreads = plan[0] == null ? threads : plan[0].getThreads();
+        if (scatterThreads <= 1 || parts.size() <= 1) {
+            scatter.apply(0, parts.size());
+        } else {
+            parallelApplier(scatterThreads, 0, parts.size(), scatter);
+        }
+        return asList(res);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> List<T> asList(final Object[] array) {
+        return (List<T>) Arrays.asList(array);
     }
 
     @Override
     public <T, U> List<U> map(int threads, List<? extends T> values, Function<? super T, ? extends U> f) throws InterruptedException {
-        return appliedList(threads, values, stream -> stream.map(f));
+        final Object[] res = new Object[values.size()];
+        rangeApplier(threads, values.size(), (from, to) -> {
+            int i = from;
+            for (final T value : values.subList(from, to)) {
+                res[i++] = f.apply(value);
+            }
+            return null;
+        });
+        return asList(res);
     }
 
     @Override
@@ -128,6 +590,16 @@ public class IterativeParallelism implements AdvancedIP {
 
     @Override
     public <T> boolean any(int threads, List<? extends T> values, Predicate<? super T> predicate) throws InterruptedException {
-        return !filter(threads, values, predicate).isEmpty();
+        final AtomicBoolean found = new AtomicBoolean(false);
+        applyChunks(threads, values, stream -> {
+            final Iterator<? extends T> iterator = stream.iterator();
+            while (!found.get() && iterator.hasNext()) {
+                if (predicate.test(iterator.next())) {
+                    found.set(true);
+                }
+            }
+            return null;
+        });
+        return found.get();
     }
 }
@@ -0,0 +1,21 @@
+package info.kgeorgiy.ja.nesterenko.concurrent;
+
+import java.util.function.LongBinaryOperator;
+
+public class LongMonoid {
+    private final long identity;
+    private final LongBinaryOperator operator;
+
+    public LongMonoid(long identity, LongBinaryOperator operator) {
+        this.identity = identity;
+        this.operator = operator;
+    }
+
+    public long getIdentity() {
+        return identity;
+    }
+
+    public LongBinaryOperator getOperator() {
+        return operator;
+    }
+}
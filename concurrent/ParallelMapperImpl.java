@@ -0,0 +1,154 @@
+package info.kgeorgiy.ja.nesterenko.concurrent;
+
+import info.kgeorgiy.java.advanced.mapper.ParallelMapper;
+
+import java.util.*;
+import java.util.function.Function;
+
+public class ParallelMapperImpl implements ParallelMapper {
+    private final List<Thread> workers = new ArrayList<>();
+    private final Queue<Runnable> tasks = new ArrayDeque<>();
+    private final Set<Results<?>> running = new HashSet<>();
+    private boolean closed = false;
+
+    private static class Results<R> {
+        private final List<R> values;
+        private int remaining;
+        private Throwable exception = null;
+        private boolean terminated = false;
+
+        private Results(int size) {
+            values = new ArrayList<>(Collections.nCopies(size, null));
+            remaining = size;
+        }
+
+        private synchronized void set(int index, R value) {
+            values.set(index, value);
+            complete();
+        }
+
+        private synchronized void fail(Throwable e) {
+            if (exception == null) {
+                exception = e;
+            } else {
+                exception.addSuppressed(e);
+            }
+            complete();
+        }
+
+        private void complete() {
+            if (--remaining == 0) {
+                notifyAll();
+            }
+        }
+
+        private synchronized void terminate() {
+            terminated = true;
+            notifyAll();
+        }
+
+        private synchronized List<R> get() throws InterruptedException {
+            while (remaining > 0 && !terminated) {
+                wait();
+            }
+            if (remaining > 0) {
+                throw new IllegalStateException("Mapper was closed");
+            }
+            if (exception instanceof RuntimeException e) {
+                throw e;
+            }
+            if (exception instanceof Error e) {
+                throw e;
+            }
+            if (exception != null) {
+                throw new IllegalStateException(exception);
+            }
+            return values;
+        }
+    }
+
+    public ParallelMapperImpl(int threads) {
+        if (threads <= 0) {
+            throw new IllegalArgumentException("Expected positive number of threads: " + threads);
+        }
+        for (int i = 0; i < threads; i++) {
+            Thread worker = new Thread(this::work);
+            workers.add(worker);
+            worker.start();
+        }
+    }
+
+    private void work() {
+        try {
+            while (true) {
+                Runnable task;
+                synchronized (tasks) {
+                    while (tasks.isEmpty() && !closed) {
+                        tasks.wait();
+                    }
+                    if (closed) {
+                        return;
+                    }
+                    task = tasks.poll();
+                }
+                task.run();
+            }
+        } catch (InterruptedException ignored) {
+        }
+    }
+
+    @Override
+    public <T, R> List<R> map(Function<? super T, ? extends R> f, List<? extends T> args) throws InterruptedException {
+        final Results<R> results = new Results<>(args.size());
+        if (args.isEmpty()) {
+            return results.values;
+        }
+        synchronized (tasks) {
+            if (closed) {
+                throw new IllegalStateException("Mapper was closed");
+            }
+            running.add(results);
+            for (int i = 0; i < args.size(); i++) {
+                final int index = i;
+                tasks.add(() -> {
+                    try {
+                        results.set(index, f.apply(args.get(index)));
+                    } catch (Throwable e) {
+                        results.fail(e);
+                    }
+                });
+            }
+            tasks.notifyAll();
+        }
+        try {
+            return results.get();
+        } finally {
+            synchronized (tasks) {
+                running.remove(results);
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        synchronized (tasks) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            tasks.clear();
+            tasks.notifyAll();
+            running.forEach(Results::terminate);
+        }
+        workers.forEach(Thread::interrupt);
+        for (Thread worker : workers) {
+            while (true) {
+                try {
+                    worker.join();
+                    break;
+                } catch (InterruptedException ignored) {
+                }
+            }
+        }
+    }
+}
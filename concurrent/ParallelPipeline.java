@@ -0,0 +1,171 @@
+package info.kgeorgiy.ja.nesterenko.concurrent;
+
+import info.kgeorgiy.java.advanced.concurrent.AdvancedIP;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+public class ParallelPipeline<T> {
+    private static final int BATCH_PER_THREAD = 1 << 12;
+
+    private final IterativeParallelism parallelism;
+    private final int threads;
+    private final Stages<?, T> stages;
+
+    @FunctionalInterface
+    private interface BatchSource<S> {
+        List<S> next();
+    }
+
+    private static class Stages<S, T> {
+        private final Function<Integer, BatchSource<S>> source;
+        private final Function<Stream<S>, Stream<T>> stage;
+
+        private Stages(Function<Integer, BatchSource<S>> source, Function<Stream<S>, Stream<T>> stage) {
+            this.source = source;
+            this.stage = stage;
+        }
+
+        private <U> Stages<S, U> then(Function<Stream<T>, Stream<U>> next) {
+            return new Stages<>(source, stage.andThen(next));
+        }
+
+        private <R> void run(IterativeParallelism parallelism,
+                             int threads,
+                             Function<? super Stream<T>, R> chunkFunction,
+                             Consumer<? super R> consumer,
+                             BooleanSupplier stop) throws InterruptedException {
+            final BatchSource<S> batches = source.apply(Math.max(1, threads) * BATCH_PER_THREAD);
+            List<S> batch;
+            while (!stop.getAsBoolean() && (batch = batches.next()) != null) {
+                final List<S> values = batch;
+                for (final R part : parallelism.rangeApplier(threads, values.size(),
+                        (from, to) -> chunkFunction.apply(stage.apply(values.subList(from, to).stream())))) {
+                    consumer.accept(part);
+                }
+            }
+        }
+    }
+
+    private ParallelPipeline(IterativeParallelism parallelism, int threads, Stages<?, T> stages) {
+        this.parallelism = parallelism;
+        this.threads = threads;
+        this.stages = stages;
+    }
+
+    static <T> ParallelPipeline<T> of(IterativeParallelism parallelism, int threads, List<? extends T> values) {
+        final List<T> list = Collections.unmodifiableList(values);
+        return new ParallelPipeline<>(parallelism, threads, new Stages<T, T>(batchSize -> {
+            final AtomicBoolean done = new AtomicBoolean();
+            return () -> done.getAndSet(true) ? null : list;
+        }, Function.identity()));
+    }
+
+    static <T> ParallelPipeline<T> of(IterativeParallelism parallelism, int threads, Iterator<? extends T> values) {
+        final AtomicBoolean opened = new AtomicBoolean();
+        return new ParallelPipeline<>(parallelism, threads, new Stages<T, T>(batchSize -> {
+            if (opened.getAndSet(true)) {
+                throw new IllegalStateException("Source has already been consumed");
+            }
+            final List<T> batch = new ArrayList<>(batchSize);
+            return () -> {
+                batch.clear();
+                while (batch.size() < batchSize && values.hasNext()) {
+                    batch.add(values.next());
+                }
+                return batch.isEmpty() ? null : batch;
+            };
+        }, Function.identity()));
+    }
+
+    public <U> ParallelPipeline<U> map(Function<? super T, ? extends U> f) {
+        return new ParallelPipeline<>(parallelism, threads, stages.then(stream -> stream.<U>map(f)));
+    }
+
+    public ParallelPipeline<T> filter(Predicate<? super T> predicate) {
+        return new ParallelPipeline<>(parallelism, threads, stages.then(stream -> stream.filter(predicate)));
+    }
+
+    private <R> void run(Function<? super Stream<T>, R> chunkFunction, Consumer<? super R> consumer)
+            throws InterruptedException {
+        run(chunkFunction, consumer, () -> false);
+    }
+
+    private <R> void run(Function<? super Stream<T>, R> chunkFunction, Consumer<? super R> consumer, BooleanSupplier stop)
+            throws InterruptedException {
+        stages.run(parallelism, threads, chunkFunction, consumer, stop);
+    }
+
+    public T reduce(AdvancedIP.Monoid<T> monoid) throws InterruptedException {
+        final AtomicReference<T> result = new AtomicReference<>(monoid.getIdentity());
+        run(stream -> stream.reduce(monoid.getIdentity(), monoid.getOperator()),
+                part -> result.set(monoid.getOperator().apply(result.get(), part)));
+        return result.get();
+    }
+
+    public <R> R mapReduce(Function<? super T, R> lift, AdvancedIP.Monoid<R> monoid) throws InterruptedException {
+        return map(lift).reduce(monoid);
+    }
+
+    public List<T> toList() throws InterruptedException {
+        final List<T> res = new ArrayList<>();
+        run(Stream::toList, res::addAll);
+        return res;
+    }
+
+    public String join() throws InterruptedException {
+        final StringBuilder sb = new StringBuilder();
+        run(stream -> stream.map(Object::toString).collect(Collectors.joining()), sb::append);
+        return sb.toString();
+    }
+
+    public long count() throws InterruptedException {
+        final long[] count = new long[1];
+        run(Stream::count, part -> count[0] += part);
+        return count[0];
+    }
+
+    public T maximum(Comparator<? super T> comparator) throws InterruptedException {
+        final AtomicReference<T> max = new AtomicReference<>();
+        run(stream -> stream.max(comparator).orElse(null), part -> {
+            if (part != null && (max.get() == null || comparator.compare(part, max.get()) > 0)) {
+                max.set(part);
+            }
+        });
+        return max.get();
+    }
+
+    public T minimum(Comparator<? super T> comparator) throws InterruptedException {
+        return maximum(comparator.reversed());
+    }
+
+    public boolean any(Predicate<? super T> predicate) throws InterruptedException {
+        final AtomicBoolean found = new AtomicBoolean(false);
+        run(stream -> {
+            final Iterator<T> iterator = stream.iterator();
+            while (!found.get() && iterator.hasNext()) {
+                if (predicate.test(iterator.next())) {
+                    found.set(true);
+                }
+            }
+            return null;
+        }, part -> {
+        }, found::get);
+        return found.get();
+    }
+
+    public boolean all(Predicate<? super T> predicate) throws InterruptedException {
+        return !any(predicate.negate());
+    }
+}
@@ -0,0 +1,52 @@
+package info.kgeorgiy.ja.nesterenko.concurrent;
+
+public class SchedulingReport {
+    private final int chunks;
+    private final int workers;
+    private final long totalNanos;
+    private final long maxWorkerNanos;
+    private final long staticMaxBlockNanos;
+
+    public SchedulingReport(int chunks, int workers, long totalNanos, long maxWorkerNanos, long staticMaxBlockNanos) {
+        this.chunks = chunks;
+        this.workers = workers;
+        this.totalNanos = totalNanos;
+        this.maxWorkerNanos = maxWorkerNanos;
+        this.staticMaxBlockNanos = staticMaxBlockNanos;
+    }
+
+    public int getChunks() {
+        return chunks;
+    }
+
+    public int getWorkers() {
+        return workers;
+    }
+
+    public long getTotalNanos() {
+        return totalNanos;
+    }
+
+    public long getMaxWorkerNanos() {
+        return maxWorkerNanos;
+    }
+
+    public long getStaticMaxBlockNanos() {
+        return staticMaxBlockNanos;
+    }
+
+    public double getImbalance() {
+        return workers == 0 || totalNanos == 0 ? 1 : (double) maxWorkerNanos * workers / totalNanos;
+    }
+
+    public double getStaticImbalance() {
+        return workers == 0 || totalNanos == 0 ? 1 : (double) staticMaxBlockNanos * workers / totalNanos;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d chunks on %d workers: busiest worker %.3f ms (imbalance %.2f),"
+                        + " equal split would take %.3f ms (imbalance %.2f)",
+                chunks, workers, maxWorkerNanos / 1e6, getImbalance(), staticMaxBlockNanos / 1e6, getStaticImbalance());
+    }
+}
@@ -0,0 +1,284 @@
+package info.kgeorgiy.ja.nesterenko.crawler;
+
+import java.io.*;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+public class CrawlLog implements Closeable {
+    public static final String FILE_NAME = "crawl.log";
+
+    private static final long MAGIC = 0x57434C4F47303032L;
+    private static final int BUFFER_SIZE = 1 << 20;
+    private static final int MAX_STRING = 1 << 20;
+    private static final byte DISCOVERED = 'D';
+    private static final byte COMPLETED = 'C';
+    private static final byte FAILED = 'E';
+    private static final byte EXTRACTED = 'L';
+
+    private final FileChannel channel;
+    private final DataOutputStream out;
+    private final ScheduledExecutorService checkpointer;
+    private IOException failure;
+
+    public interface Replay {
+        void discovered(String url, int depth);
+
+        void extracted(String url, List<String> links);
+
+        void completed(String url, int depth);
+
+        void failed(String url, String message);
+    }
+
+    private CrawlLog(FileChannel channel, long checkpointMillis) {
+        this.channel = channel;
+        this.out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel), BUFFER_SIZE));
+        this.checkpointer = Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread thread = new Thread(task, "crawl-log-checkpoint");
+            thread.setDaemon(true);
+            return thread;
+        });
+        checkpointer.scheduleWithFixedDelay(this::checkpointQuietly, checkpointMillis, checkpointMillis,
+                TimeUnit.MILLISECONDS);
+    }
+
+    public static CrawlLog open(Path directory, String url, int depth, List<String> hosts,
+                                long checkpointMillis, Replay replay) throws IOException {
+        Files.createDirectories(directory);
+        final Path file = directory.resolve(FILE_NAME);
+        final List<String> sortedHosts = hosts == null ? null : new ArrayList<>(hosts);
+        if (sortedHosts != null) {
+            sortedHosts.sort(null);
+        }
+        final FileChannel channel = FileChannel.open(file,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            final long valid = channel.size() == 0 ? -1 : replay(file, url, depth, sortedHosts, replay);
+            channel.truncate(Math.max(0, valid));
+            channel.position(Math.max(0, valid));
+            final CrawlLog log = new CrawlLog(channel, checkpointMillis);
+            if (valid < 0) {
+                log.writeHeader(url, depth, sortedHosts);
+                log.checkpoint();
+            }
+            return log;
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    private static class LogReader implements Closeable {
+        private final DataInputStream in;
+        private long position;
+
+        private LogReader(Path file) throws IOException {
+            in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), BUFFER_SIZE));
+        }
+
+        private int readType() throws IOException {
+            final int type = in.read();
+            if (type >= 0) {
+                position++;
+            }
+            return type;
+        }
+
+        private int readInt() throws IOException {
+            final int value = in.readInt();
+            position += Integer.BYTES;
+            return value;
+        }
+
+        private long readLong() throws IOException {
+            final long value = in.readLong();
+            position += Long.BYTES;
+            return value;
+        }
+
+        private String readString() throws IOException {
+            final int length = readInt();
+            if (length < 0 || length > MAX_STRING) {
+                throw new StreamCorruptedException("Invalid string length " + length);
+            }
+            final byte[] bytes = new byte[length];
+            in.readFully(bytes);
+            position += bytes.length;
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        private List<String> readStrings() throws IOException {
+            final int count = readInt();
+            if (count < 0 || count > MAX_STRING) {
+                throw new StreamCorruptedException("Invalid string count " + count);
+            }
+            final List<String> strings = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                strings.add(readString());
+            }
+            return strings;
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+
+    private static long replay(Path file, String url, int depth, List<String> hosts, Replay replay)
+            throws IOException {
+        try (LogReader reader = new LogReader(file)) {
+            final String logUrl;
+            final int logDepth;
+            final List<String> logHosts;
+            try {
+                if (reader.readLong() != MAGIC) {
+                    throw new IOException("Not a crawl log: " + file);
+                }
+                logUrl = reader.readString();
+                logDepth = reader.readInt();
+                final int hostCount = reader.readInt();
+                logHosts = hostCount < 0 ? null : new ArrayList<>();
+                for (int i = 0; i < hostCount; i++) {
+                    logHosts.add(reader.readString());
+                }
+            } catch (EOFException | StreamCorruptedException e) {
+                return -1;
+            }
+            if (!logUrl.equals(url) || logDepth != depth || (logHosts == null ? hosts != null : !logHosts.equals(hosts))) {
+                throw new IllegalArgumentException("Crawl log " + file + " belongs to a different crawl: "
+                        + logUrl + " with depth " + logDepth);
+            }
+            long valid = reader.position;
+            try {
+                int type;
+                while ((type = reader.readType()) >= 0) {
+                    final String recordUrl = reader.readString();
+                    switch (type) {
+                        case DISCOVERED:
+                            replay.discovered(recordUrl, reader.readInt());
+                            break;
+                        case EXTRACTED:
+                            replay.extracted(recordUrl, reader.readStrings());
+                            break;
+                        case COMPLETED:
+                            replay.completed(recordUrl, reader.readInt());
+                            break;
+                        case FAILED:
+                            replay.failed(recordUrl, reader.readString());
+                            break;
+                        default:
+                            throw new StreamCorruptedException("Unknown record type " + type);
+                    }
+                    valid = reader.position;
+                }
+            } catch (EOFException | StreamCorruptedException ignored) {
+            }
+            return valid;
+        }
+    }
+
+    private void writeString(String string) throws IOException {
+        final byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private synchronized void writeHeader(String url, int depth, List<String> hosts) throws IOException {
+        out.writeLong(MAGIC);
+        writeString(url);
+        out.writeInt(depth);
+        out.writeInt(hosts == null ? -1 : hosts.size());
+        if (hosts != null) {
+            for (String host : hosts) {
+                writeString(host);
+            }
+        }
+    }
+
+    public synchronized void discovered(String url, int depth) {
+        try {
+            out.writeByte(DISCOVERED);
+            writeString(url);
+            out.writeInt(depth);
+        } catch (IOException e) {
+            fail(e);
+        }
+    }
+
+    public synchronized void extracted(String url, List<String> links) {
+        try {
+            out.writeByte(EXTRACTED);
+            writeString(url);
+            out.writeInt(links.size());
+            for (String link : links) {
+                writeString(link);
+            }
+        } catch (IOException e) {
+            fail(e);
+        }
+    }
+
+    public synchronized void completed(String url, int depth) {
+        try {
+            out.writeByte(COMPLETED);
+            writeString(url);
+            out.writeInt(depth);
+        } catch (IOException e) {
+            fail(e);
+        }
+    }
+
+    public synchronized void failed(String url, IOException error) {
+        try {
+            out.writeByte(FAILED);
+            writeString(url);
+            writeString(String.valueOf(error.getMessage()));
+        } catch (IOException e) {
+            fail(e);
+        }
+    }
+
+    private void fail(IOException e) {
+        if (failure == null) {
+            failure = e;
+        }
+    }
+
+    public synchronized void checkpoint() throws IOException {
+        if (failure != null) {
+            throw failure;
+        }
+        out.flush();
+        channel.force(false);
+    }
+
+    private void checkpointQuietly() {
+        try {
+            checkpoint();
+        } catch (IOException e) {
+            synchronized (this) {
+                fail(e);
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        checkpointer.shutdownNow();
+        try {
+            checkpoint();
+        } finally {
+            channel.close();
+        }
+    }
+}
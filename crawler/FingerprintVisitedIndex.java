@@ -0,0 +1,180 @@
+package info.kgeorgiy.ja.nesterenko.crawler;
+
+import java.nio.ByteBuffer;
+
+public class FingerprintVisitedIndex implements VisitedIndex {
+    private static final int STRIPE_BITS = 6;
+    private static final int MIN_CAPACITY = 16;
+    private static final int MAX_CAPACITY = 1 << 26;
+    private static final double MAX_LOAD = 0.75;
+    private static final double TWO_TO_64 = 0x1p64;
+
+    private final boolean wide;
+    private final int slotSize;
+    private final Stripe[] stripes = new Stripe[1 << STRIPE_BITS];
+
+    private class Stripe {
+        private ByteBuffer table;
+        private int capacity;
+        private int size;
+
+        private Stripe(int capacity) {
+            allocate(capacity);
+        }
+
+        private void allocate(int capacity) {
+            this.capacity = capacity;
+            this.table = ByteBuffer.allocateDirect(capacity * slotSize);
+        }
+
+        private int find(long high, long low) {
+            int slot = (int) (low ^ high >>> 32) & (capacity - 1);
+            while (true) {
+                final int offset = slot * slotSize;
+                final long slotHigh = table.getLong(offset);
+                if (slotHigh == 0 || slotHigh == high && (!wide || table.getLong(offset + Long.BYTES) == low)) {
+                    return offset;
+                }
+                slot = (slot + 1) & (capacity - 1);
+            }
+        }
+
+        private synchronized int putMin(long high, long low, int value) {
+            int offset = find(high, low);
+            if (table.getLong(offset) != 0) {
+                final int current = table.getInt(offset + slotSize - Integer.BYTES);
+                if (value < current) {
+                    table.putInt(offset + slotSize - Integer.BYTES, value);
+                }
+                return current;
+            }
+            if (size + 1 > capacity * MAX_LOAD) {
+                grow();
+                offset = find(high, low);
+            }
+            table.putLong(offset, high);
+            if (wide) {
+                table.putLong(offset + Long.BYTES, low);
+            }
+            table.putInt(offset + slotSize - Integer.BYTES, value);
+            size++;
+            return 0;
+        }
+
+        private synchronized int get(long high, long low) {
+            final int offset = find(high, low);
+            return table.getLong(offset) == 0 ? 0 : table.getInt(offset + slotSize - Integer.BYTES);
+        }
+
+        private void grow() {
+            if (capacity >= MAX_CAPACITY) {
+                throw new IllegalStateException("Visited index is full: " + size + " URLs in a stripe");
+            }
+            final ByteBuffer old = table;
+            final int oldCapacity = capacity;
+            allocate(oldCapacity * 2);
+            for (int i = 0; i < oldCapacity; i++) {
+                final int from = i * slotSize;
+                final long high = old.getLong(from);
+                if (high != 0) {
+                    final long low = wide ? old.getLong(from + Long.BYTES) : mix(high);
+                    final int to = find(high, low);
+                    for (int j = 0; j < slotSize; j += Integer.BYTES) {
+                        table.putInt(to + j, old.getInt(from + j));
+                    }
+                }
+            }
+        }
+
+        private synchronized long memory() {
+            return (long) capacity * slotSize;
+        }
+
+        private synchronized int size() {
+            return size;
+        }
+    }
+
+    public FingerprintVisitedIndex(long expectedUrls, double falsePositiveRate) {
+        if (expectedUrls < 0 || !(falsePositiveRate > 0)) {
+            throw new IllegalArgumentException("Invalid visited index parameters: " + expectedUrls
+                    + " URLs, false positive rate " + falsePositiveRate);
+        }
+        this.wide = expectedUrls / TWO_TO_64 > falsePositiveRate;
+        this.slotSize = (wide ? 2 * Long.BYTES : Long.BYTES) + Integer.BYTES;
+        final long perStripe = (long) (expectedUrls / MAX_LOAD / stripes.length) + 1;
+        final int capacity = (int) Math.max(MIN_CAPACITY, Math.min(MAX_CAPACITY, Long.highestOneBit(perStripe - 1) << 1));
+        for (int i = 0; i < stripes.length; i++) {
+            stripes[i] = new Stripe(capacity);
+        }
+    }
+
+    private static long mix(long h) {
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 33;
+        h *= 0xC4CEB9FE1A85EC53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    @Override
+    public int putMin(String url, int value) {
+        final long high = high(url);
+        return stripes[(int) (high >>> (Long.SIZE - STRIPE_BITS))].putMin(high, low(url, high), value);
+    }
+
+    @Override
+    public int get(String url) {
+        final long high = high(url);
+        return stripes[(int) (high >>> (Long.SIZE - STRIPE_BITS))].get(high, low(url, high));
+    }
+
+    private static long high(String url) {
+        long h = 0xCBF29CE484222325L;
+        for (int i = 0; i < url.length(); i++) {
+            h = (h ^ url.charAt(i)) * 0x100000001B3L;
+        }
+        h = mix(h ^ url.length());
+        return h == 0 ? 1 : h;
+    }
+
+    private long low(String url, long high) {
+        if (!wide) {
+            return mix(high);
+        }
+        long h = 0x9E3779B97F4A7C15L;
+        for (int i = 0; i < url.length(); i++) {
+            h = (h + url.charAt(i)) * 0xC2B2AE3D27D4EB4FL;
+            h = Long.rotateLeft(h, 31);
+        }
+        return mix(h ^ url.length());
+    }
+
+    @Override
+    public long size() {
+        long size = 0;
+        for (Stripe stripe : stripes) {
+            size += stripe.size();
+        }
+        return size;
+    }
+
+    @Override
+    public long getMemoryBytes() {
+        long memory = 0;
+        for (Stripe stripe : stripes) {
+            memory += stripe.memory();
+        }
+        return memory;
+    }
+
+    @Override
+    public double getFalsePositiveRate() {
+        return size() / (wide ? TWO_TO_64 * TWO_TO_64 : TWO_TO_64);
+    }
+
+    public boolean isWide() {
+        return wide;
+    }
+}
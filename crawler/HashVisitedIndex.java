@@ -0,0 +1,49 @@
+package info.kgeorgiy.ja.nesterenko.crawler;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+public class HashVisitedIndex implements VisitedIndex {
+    private static final long ENTRY_OVERHEAD = 96;
+
+    private final Map<String, Integer> values = new ConcurrentHashMap<>();
+    private final LongAdder memory = new LongAdder();
+
+    @Override
+    public int putMin(String url, int value) {
+        final Integer current = values.get(url);
+        if (current != null && current <= value) {
+            return current;
+        }
+        final int[] previous = new int[1];
+        values.compute(url, (key, old) -> {
+            previous[0] = old == null ? 0 : old;
+            return old == null || value < old ? value : old;
+        });
+        if (previous[0] == 0) {
+            memory.add(ENTRY_OVERHEAD + url.length());
+        }
+        return previous[0];
+    }
+
+    @Override
+    public int get(String url) {
+        return values.getOrDefault(url, 0);
+    }
+
+    @Override
+    public long size() {
+        return values.size();
+    }
+
+    @Override
+    public long getMemoryBytes() {
+        return memory.sum();
+    }
+
+    @Override
+    public double getFalsePositiveRate() {
+        return 0;
+    }
+}
@@ -0,0 +1,96 @@
+package info.kgeorgiy.ja.nesterenko.crawler;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+public class HostFilter {
+    private static final HostFilter ALL = new HostFilter(Set.of(), Set.of(), true);
+
+    private final Set<String> exact;
+    private final Set<String> suffixes;
+    private final boolean all;
+
+    private HostFilter(Set<String> exact, Set<String> suffixes, boolean all) {
+        this.exact = exact;
+        this.suffixes = suffixes;
+        this.all = all;
+    }
+
+    public static HostFilter of(List<String> hosts) {
+        if (hosts == null) {
+            return ALL;
+        }
+        final Set<String> exact = new HashSet<>();
+        final Set<String> suffixes = new HashSet<>();
+        for (String host : hosts) {
+            if (host.equals("*")) {
+                return ALL;
+            }
+            if (host.startsWith("*.")) {
+                suffixes.add(host.substring(1));
+            } else {
+                exact.add(host);
+            }
+        }
+        return new HostFilter(exact, suffixes, false);
+    }
+
+    public boolean acceptsHost(String host) {
+        if (all || exact.contains(host)) {
+            return true;
+        }
+        if (suffixes.isEmpty()) {
+            return false;
+        }
+        for (int i = host.indexOf('.'); i >= 0; i = host.indexOf('.', i + 1)) {
+            if (suffixes.contains(host.substring(i))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public boolean acceptsUrl(String url) {
+        if (all) {
+            return true;
+        }
+        final String host = quickHost(url);
+        return host == null || acceptsHost(host);
+    }
+
+    private static String quickHost(String url) {
+        final int scheme = url.indexOf("://");
+        if (scheme <= 0) {
+            return null;
+        }
+        final int start = scheme + 3;
+        int end = start;
+        int hostStart = start;
+        int port = -1;
+        while (end < url.length()) {
+            final char c = url.charAt(end);
+            if (c == '/' || c == '?' || c == '#') {
+                break;
+            }
+            if (c == '@') {
+                hostStart = end + 1;
+                port = -1;
+            } else if (c == ':') {
+                port = end;
+            }
+            end++;
+        }
+        final int hostEnd = port >= hostStart ? port : end;
+        if (hostStart >= hostEnd) {
+            return null;
+        }
+        for (int i = hostStart; i < hostEnd; i++) {
+            final char c = url.charAt(i);
+            if (!(Character.isLetterOrDigit(c) && c < 128 || c == '.' || c == '-')) {
+                return null;
+            }
+        }
+        return url.substring(hostStart, hostEnd);
+    }
+}
@@ -0,0 +1,39 @@
+package info.kgeorgiy.ja.nesterenko.crawler;
+
+public class HostPolicy {
+    private static final HostPolicy UNLIMITED = new HostPolicy(0, 1, 0);
+
+    private final double rate;
+    private final int burst;
+    private final long crawlDelayMillis;
+
+    public HostPolicy(double rate, int burst, long crawlDelayMillis) {
+        if (rate < 0 || burst < 1 || crawlDelayMillis < 0) {
+            throw new IllegalArgumentException("Invalid host policy: rate " + rate
+                    + ", burst " + burst + ", crawl delay " + crawlDelayMillis + " ms");
+        }
+        this.rate = rate;
+        this.burst = burst;
+        this.crawlDelayMillis = crawlDelayMillis;
+    }
+
+    public static HostPolicy unlimited() {
+        return UNLIMITED;
+    }
+
+    public boolean isRateLimited() {
+        return rate > 0;
+    }
+
+    public double getRate() {
+        return rate;
+    }
+
+    public int getBurst() {
+        return burst;
+    }
+
+    public long getCrawlDelayMillis() {
+        return crawlDelayMillis;
+    }
+}
@@ -0,0 +1,191 @@
+package info.kgeorgiy.ja.nesterenko.crawler;
+
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+public class HostScheduler implements AutoCloseable {
+    private final ExecutorService executor;
+    private final int perHost;
+    private final HostPolicy defaultPolicy;
+    private final Map<String, HostQueue> hosts = new HashMap<>();
+    private final Map<String, HostPolicy> policies = new HashMap<>();
+    private final Deque<HostQueue> ready = new ArrayDeque<>();
+    private final Thread dispatcher;
+    private int free;
+    private boolean closed;
+
+    private static class Task {
+        private final Runnable task;
+        private final long enqueued;
+
+        private Task(Runnable task, long enqueued) {
+            this.task = task;
+            this.enqueued = enqueued;
+        }
+    }
+
+    private class HostQueue {
+        private final String host;
+        private final Queue<Task> tasks = new ArrayDeque<>();
+        private HostPolicy policy;
+        private boolean inRing;
+        private int running;
+        private double tokens;
+        private long lastRefill;
+        private long nextStart;
+        private int maxQueued;
+        private long started;
+        private long totalWait;
+        private long maxWait;
+
+        private HostQueue(String host, HostPolicy policy, long now) {
+            this.host = host;
+            this.policy = policy;
+            this.tokens = policy.getBurst();
+            this.lastRefill = now;
+            this.nextStart = now;
+        }
+
+        private long delay(long now) {
+            if (running >= perHost) {
+                return Long.MAX_VALUE;
+            }
+            long wait = Math.max(0, nextStart - now);
+            if (policy.isRateLimited()) {
+                tokens = Math.min(policy.getBurst(), tokens + (now - lastRefill) * policy.getRate() / 1e9);
+                lastRefill = now;
+                if (tokens < 1) {
+                    wait = Math.max(wait, (long) Math.ceil((1 - tokens) / policy.getRate() * 1e9));
+                }
+            }
+            return wait;
+        }
+
+        private Task start(long now) {
+            final Task task = tasks.remove();
+            running++;
+            if (policy.isRateLimited()) {
+                tokens--;
+            }
+            nextStart = now + TimeUnit.MILLISECONDS.toNanos(policy.getCrawlDelayMillis());
+            final long wait = now - task.enqueued;
+            started++;
+            totalWait += wait;
+            maxWait = Math.max(maxWait, wait);
+            return task;
+        }
+
+        private HostStats stats() {
+            return new HostStats(host, tasks.size(), maxQueued, running, started, totalWait, maxWait);
+        }
+    }
+
+    public HostScheduler(ExecutorService executor, int threads, int perHost, HostPolicy defaultPolicy) {
+        this.executor = executor;
+        this.free = threads;
+        this.perHost = perHost;
+        this.defaultPolicy = defaultPolicy;
+        dispatcher = new Thread(this::dispatchLoop, "crawler-scheduler");
+        dispatcher.start();
+    }
+
+    public synchronized void setPolicy(String host, HostPolicy policy) {
+        policies.put(host, policy);
+        final HostQueue queue = hosts.get(host);
+        if (queue != null) {
+            queue.policy = policy;
+            queue.tokens = Math.max(0, Math.min(queue.tokens, policy.getBurst()));
+            queue.lastRefill = System.nanoTime();
+        }
+        notifyAll();
+    }
+
+    public synchronized void submit(String host, Runnable task) {
+        final long now = System.nanoTime();
+        final HostQueue queue = hosts.computeIfAbsent(host,
+                name -> new HostQueue(name, policies.getOrDefault(name, defaultPolicy), now));
+        queue.tasks.add(new Task(task, now));
+        queue.maxQueued = Math.max(queue.maxQueued, queue.tasks.size());
+        if (!queue.inRing) {
+            queue.inRing = true;
+            ready.add(queue);
+        }
+        notifyAll();
+    }
+
+    public synchronized List<HostStats> getStats() {
+        final List<HostStats> stats = new ArrayList<>();
+        for (HostQueue queue : hosts.values()) {
+            stats.add(queue.stats());
+        }
+        return stats;
+    }
+
+    private synchronized void finished(HostQueue queue) {
+        queue.running--;
+        free++;
+        notifyAll();
+    }
+
+    private synchronized void dispatchLoop() {
+        try {
+            while (!closed) {
+                final long now = System.nanoTime();
+                long sleep = Long.MAX_VALUE;
+                int idle = 0;
+                while (free > 0 && idle < ready.size()) {
+                    final HostQueue queue = ready.remove();
+                    final long delay = queue.delay(now);
+                    if (delay == 0) {
+                        final Task task = queue.start(now);
+                        free--;
+                        idle = 0;
+                        executor.submit(() -> {
+                            try {
+                                task.task.run();
+                            } finally {
+                                finished(queue);
+                            }
+                        });
+                    } else {
+                        sleep = Math.min(sleep, delay);
+                        idle++;
+                    }
+                    if (queue.tasks.isEmpty()) {
+                        queue.inRing = false;
+                    } else {
+                        ready.add(queue);
+                    }
+                }
+                if (free == 0 || sleep == Long.MAX_VALUE) {
+                    wait();
+                } else {
+                    TimeUnit.NANOSECONDS.timedWait(this, sleep);
+                }
+            }
+        } catch (InterruptedException ignored) {
+        }
+    }
+
+    @Override
+    public void close() {
+        synchronized (this) {
+            closed = true;
+            notifyAll();
+        }
+        dispatcher.interrupt();
+        boolean interrupted = false;
+        while (true) {
+            try {
+                dispatcher.join();
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
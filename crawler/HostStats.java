@@ -0,0 +1,60 @@
+package info.kgeorgiy.ja.nesterenko.crawler;
+
+public class HostStats {
+    private final String host;
+    private final int queued;
+    private final int maxQueued;
+    private final int running;
+    private final long started;
+    private final long totalWaitNanos;
+    private final long maxWaitNanos;
+
+    public HostStats(String host, int queued, int maxQueued, int running, long started,
+                     long totalWaitNanos, long maxWaitNanos) {
+        this.host = host;
+        this.queued = queued;
+        this.maxQueued = maxQueued;
+        this.running = running;
+        this.started = started;
+        this.totalWaitNanos = totalWaitNanos;
+        this.maxWaitNanos = maxWaitNanos;
+    }
+
+    public String getHost() {
+        return host;
+    }
+
+    public int getQueued() {
+        return queued;
+    }
+
+    public int getMaxQueued() {
+        return maxQueued;
+    }
+
+    public int getRunning() {
+        return running;
+    }
+
+    public long getStarted() {
+        return started;
+    }
+
+    public long getTotalWaitNanos() {
+        return totalWaitNanos;
+    }
+
+    public long getMaxWaitNanos() {
+        return maxWaitNanos;
+    }
+
+    public double getAverageWaitNanos() {
+        return started == 0 ? 0 : (double) totalWaitNanos / started;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s: %d started, %d queued (max %d), %d running, wait avg %.3f ms, max %.3f ms",
+                host, started, queued, maxQueued, running, getAverageWaitNanos() / 1e6, maxWaitNanos / 1e6);
+    }
+}
@@ -0,0 +1,17 @@
+package info.kgeorgiy.ja.nesterenko.crawler;
+
+public interface VisitedIndex {
+    int putMin(String url, int value);
+
+    int get(String url);
+
+    long size();
+
+    long getMemoryBytes();
+
+    double getFalsePositiveRate();
+
+    default boolean add(String url) {
+        return putMin(url, 1) == 0;
+    }
+}
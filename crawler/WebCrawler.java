@@ -3,78 +3,307 @@ package info.kgeorgiy.ja.nesterenko.crawler;
 import info.kgeorgiy.java.advanced.crawler.*;
 
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.net.MalformedURLException;
+import java.nio.file.Path;
 import java.util.*;
 import java.util.concurrent.*;
+import java.util.function.Supplier;
 
 public class WebCrawler implements AdvancedCrawler {
+    private static final long CHECKPOINT_MILLIS = 1000;
+
     private final Downloader downloader;
     private final ExecutorService downloadersService;
     private final ExecutorService extractorsService;
-    private final int perHost;
-    private final Map<String, DownloadQueue> urlHostMap;
+    private final boolean pipelined;
+    private final HostScheduler scheduler;
+    private volatile Supplier<VisitedIndex> visitedIndexFactory = HashVisitedIndex::new;
+    private volatile VisitedIndex lastVisitedIndex;
+    private volatile Path crawlLogDirectory;
 
-    private class DownloadQueue {
-        private final Queue<Runnable> tasks = new ArrayDeque<>();
+    private static class UrlAndDepth {
 
-        private int serviceSize = 0;
-        private final int maxSize;
+        private final String url;
+        private final int depth;
+        private UrlAndDepth(String url, int depth) {
+            this.url = url;
+            this.depth = depth;
+        }
 
-        public DownloadQueue(int maxSize) {
-            this.maxSize = maxSize;
+        public int getDepth() {
+            return depth;
         }
 
-        public synchronized void submit() {
-            Runnable task = tasks.poll();
-            if (task != null) {
-                downloadersService.submit(task);
-            } else {
-                serviceSize--;
-            }
+        public String getUrl() {
+            return url;
         }
 
-        public synchronized void add(Runnable task) {
-            if (serviceSize < maxSize) {
-                serviceSize++;
-                downloadersService.submit(task);
-            } else {
-                tasks.add(task);
+    }
+
+    private static class Pending {
+        private int count;
+
+        public synchronized void start() {
+            count++;
+        }
+
+        public synchronized void finish() {
+            if (--count == 0) {
+                notifyAll();
             }
         }
 
+        public synchronized void await() throws InterruptedException {
+            while (count > 0) {
+                wait();
+            }
+        }
     }
 
-    private static class UrlAndDepth {
-
-        private final String url;
+    private class PipelinedCrawl implements CrawlLog.Replay {
         private final int depth;
-        private UrlAndDepth(String url, int depth) {
-            this.url = url;
+        private final HostFilter filter;
+        private final Set<String> downloaded = ConcurrentHashMap.newKeySet();
+        private final Map<String, IOException> errors = new ConcurrentHashMap<>();
+        private final VisitedIndex depths;
+        private final VisitedIndex expandedDepths;
+        private final Map<String, List<String>> links = new ConcurrentHashMap<>();
+        private final Pending pending = new Pending();
+        private final Set<String> restored = ConcurrentHashMap.newKeySet();
+        private final Set<String> frontier = new LinkedHashSet<>();
+        private CrawlLog log;
+
+        private PipelinedCrawl(int depth, HostFilter filter, VisitedIndex depths, VisitedIndex expandedDepths) {
             this.depth = depth;
+            this.filter = filter;
+            this.depths = depths;
+            this.expandedDepths = expandedDepths;
         }
 
-        public int getDepth() {
-            return depth;
+        private Result run(Path logDirectory, String url, List<String> hosts) {
+            try (CrawlLog opened = CrawlLog.open(logDirectory, url, depth, hosts, CHECKPOINT_MILLIS, this)) {
+                log = opened;
+                return run(url);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Crawl log failure in " + logDirectory + ": " + e.getMessage(), e);
+            }
         }
 
-        public String getUrl() {
-            return url;
+        @Override
+        public void discovered(String url, int urlDepth) {
+            depths.putMin(url, urlDepth);
+            if (!downloaded.contains(url) && !errors.containsKey(url)) {
+                frontier.add(url);
+            }
+        }
+
+        @Override
+        public void extracted(String url, List<String> pageLinks) {
+            downloaded.add(url);
+            frontier.remove(url);
+            restored.add(url);
+            links.put(url, pageLinks);
+        }
+
+        @Override
+        public void completed(String url, int urlDepth) {
+            downloaded.add(url);
+            frontier.remove(url);
+            restored.add(url);
+            if (urlDepth < depth) {
+                expandedDepths.putMin(url, urlDepth);
+            }
+        }
+
+        @Override
+        public void failed(String url, String message) {
+            errors.put(url, new IOException(message));
+            frontier.remove(url);
+        }
+
+        private Result run(String url) {
+            pending.start();
+            discover(url, 1);
+            for (String pendingUrl : frontier) {
+                submitDownload(pendingUrl);
+            }
+            frontier.clear();
+            for (String restoredUrl : restored) {
+                reexpand(restoredUrl);
+            }
+            restored.clear();
+            pending.finish();
+            try {
+                pending.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return new Result(new ArrayList<>(downloaded), errors);
         }
 
+        private void discover(String url, int urlDepth) {
+            final int previous = depths.putMin(url, urlDepth);
+            if (log != null && (previous == 0 || urlDepth < previous)) {
+                log.discovered(url, urlDepth);
+            }
+            if (previous == 0) {
+                submitDownload(url);
+            } else if (urlDepth < previous) {
+                reexpand(url);
+            }
+        }
+
+        private void fail(String url, IOException e) {
+            errors.put(url, e);
+            if (log != null) {
+                log.failed(url, e);
+            }
+        }
+
+        private void complete(String url, int urlDepth) {
+            if (log != null) {
+                log.completed(url, urlDepth);
+            }
+        }
+
+        private void reexpand(String url) {
+            final List<String> pageLinks = links.get(url);
+            if (pageLinks == null) {
+                return;
+            }
+            final int urlDepth = claim(url);
+            if (urlDepth == 0) {
+                return;
+            }
+            pending.start();
+            extractorsService.submit(() -> {
+                try {
+                    follow(url, urlDepth, pageLinks);
+                } finally {
+                    pending.finish();
+                }
+            });
+        }
+
+        private void submitDownload(String url) {
+            try {
+                String hostName = URLUtils.getHost(url);
+                if (!filter.acceptsHost(hostName)) {
+                    return;
+                }
+                pending.start();
+                scheduler.submit(hostName, () -> {
+                    try {
+                        final Document document = downloader.download(url);
+                        downloaded.add(url);
+                        pending.start();
+                        extractorsService.submit(() -> {
+                            try {
+                                extract(url, document);
+                            } finally {
+                                pending.finish();
+                            }
+                        });
+                    } catch (IOException e) {
+                        fail(url, e);
+                    } finally {
+                        pending.finish();
+                    }
+                });
+            } catch (MalformedURLException e) {
+                fail(url, e);
+            }
+        }
+
+        private void extract(String url, Document document) {
+            final List<String> pageLinks = new ArrayList<>();
+            try {
+                for (String link : document.extractLinks()) {
+                    if (filter.acceptsUrl(link)) {
+                        pageLinks.add(link);
+                    }
+                }
+            } catch (IOException ignored) {
+            }
+            links.put(url, pageLinks);
+            if (log != null) {
+                log.extracted(url, pageLinks);
+            }
+            final int urlDepth = depths.get(url);
+            if (urlDepth >= depth) {
+                complete(url, urlDepth);
+                return;
+            }
+            final int claimed = claim(url);
+            if (claimed != 0) {
+                follow(url, claimed, pageLinks);
+            }
+        }
+
+        private int claim(String url) {
+            final int urlDepth = depths.get(url);
+            if (urlDepth >= depth) {
+                return 0;
+            }
+            final int expanded = expandedDepths.putMin(url, urlDepth);
+            return expanded == 0 || urlDepth < expanded ? urlDepth : 0;
+        }
+
+        private void follow(String url, int urlDepth, List<String> pageLinks) {
+            try {
+                for (String link : pageLinks) {
+                    discover(link, urlDepth + 1);
+                }
+            } finally {
+                complete(url, urlDepth);
+            }
+        }
     }
+
     public WebCrawler(Downloader downloader, int downloaders, int extractors, int perHost) {
+        this(downloader, downloaders, extractors, perHost, false);
+    }
+
+    public WebCrawler(Downloader downloader, int downloaders, int extractors, int perHost, boolean pipelined) {
+        this(downloader, downloaders, extractors, perHost, HostPolicy.unlimited(), pipelined);
+    }
+
+    public WebCrawler(Downloader downloader, int downloaders, int extractors, int perHost,
+                      HostPolicy hostPolicy, boolean pipelined) {
         this.downloader = downloader;
         downloadersService = Executors.newFixedThreadPool(downloaders);
         extractorsService = Executors.newFixedThreadPool(extractors);
-        this.perHost = perHost;
-        urlHostMap = new ConcurrentHashMap<>();
+        this.pipelined = pipelined;
+        scheduler = new HostScheduler(downloadersService, downloaders, perHost, hostPolicy);
+    }
+
+    public void setHostPolicy(String host, HostPolicy hostPolicy) {
+        scheduler.setPolicy(host, hostPolicy);
+    }
+
+    public List<HostStats> getHostStats() {
+        return scheduler.getStats();
+    }
+
+    public void setVisitedIndex(Supplier<VisitedIndex> visitedIndexFactory) {
+        this.visitedIndexFactory = visitedIndexFactory;
+    }
+
+    public VisitedIndex getLastVisitedIndex() {
+        return lastVisitedIndex;
+    }
+
+    public void setCrawlLog(Path directory) {
+        this.crawlLogDirectory = directory;
     }
 
     private void breadthFirstSearchDownload(String url,
                                             int depth,
                                             Set<String> downloaded,
-                                            Set<String> extracted,
+                                            VisitedIndex extracted,
                                             Map<String, IOException> errors,
+                                            HostFilter filter,
                                             Phaser phaser) {
         Queue<UrlAndDepth> urls = new ConcurrentLinkedQueue<>();
         urls.add(new UrlAndDepth(url, 1));
@@ -87,34 +316,35 @@ public class WebCrawler implements AdvancedCrawler {
             UrlAndDepth currentUrl = urls.poll();
             try {
                 String hostName = URLUtils.getHost(Objects.requireNonNull(currentUrl).getUrl());
-                DownloadQueue downloadQueue = urlHostMap.computeIfAbsent(hostName, name -> new DownloadQueue(perHost));
-                phaser.register();
-                downloadQueue.add(() -> {
-                    try {
-                        Document document = downloader.download(currentUrl.getUrl());
-                        downloaded.add(currentUrl.getUrl());
-                        if (currentUrl.getDepth() < depth) {
-                            phaser.register();
-                            extractorsService.submit(() -> {
-                                try {
-                                    document.extractLinks().stream()
-                                            .filter(extracted::add)
-                                            .forEach(urlToAdd ->
-                                                    urls.add(new UrlAndDepth(urlToAdd,
-                                                            currentUrl.getDepth() + 1)));
-                                } catch (IOException ignored) {
-                                } finally {
-                                    phaser.arriveAndDeregister();
-                                }
-                            });
+                if (filter.acceptsHost(hostName)) {
+                    phaser.register();
+                    scheduler.submit(hostName, () -> {
+                        try {
+                            Document document = downloader.download(currentUrl.getUrl());
+                            downloaded.add(currentUrl.getUrl());
+                            if (currentUrl.getDepth() < depth) {
+                                phaser.register();
+                                extractorsService.submit(() -> {
+                                    try {
+                                        document.extractLinks().stream()
+                                                .filter(filter::acceptsUrl)
+                                                .filter(extracted::add)
+                                                .forEach(urlToAdd ->
+                                                        urls.add(new UrlAndDepth(urlToAdd,
+                                                                currentUrl.getDepth() + 1)));
+                                    } catch (IOException ignored) {
+                                    } finally {
+                                        phaser.arriveAndDeregister();
+                                    }
+                                });
+                            }
+                        } catch (IOException e) {
+                            errors.put(currentUrl.getUrl(), e);
+                        } finally {
+                            phaser.arriveAndDeregister();
                         }
-                    } catch (IOException e) {
-                        errors.put(currentUrl.getUrl(), e);
-                    } finally {
-                        phaser.arriveAndDeregister();
-                        downloadQueue.submit();
-                    }
-                });
+                    });
+                }
             } catch (MalformedURLException e) {
                 errors.put(Objects.requireNonNull(currentUrl).getUrl(), e);
             }
@@ -131,18 +361,29 @@ public class WebCrawler implements AdvancedCrawler {
 
     @Override
     public Result download(String url, int depth, List<String> hosts) {
+        HostFilter filter = HostFilter.of(hosts);
+        Supplier<VisitedIndex> indexFactory = visitedIndexFactory;
+        VisitedIndex visited = indexFactory.get();
+        lastVisitedIndex = visited;
+        Path logDirectory = crawlLogDirectory;
+        if (logDirectory != null) {
+            return new PipelinedCrawl(depth, filter, visited, indexFactory.get()).run(logDirectory, url, hosts);
+        }
+        if (pipelined) {
+            return new PipelinedCrawl(depth, filter, visited, indexFactory.get()).run(url);
+        }
         Set<String> downloaded = ConcurrentHashMap.newKeySet();
-        Set<String> extracted = ConcurrentHashMap.newKeySet();
-        extracted.add(url);
+        visited.add(url);
         Map<String, IOException> errors = new ConcurrentHashMap<>();
         Phaser phaser = new Phaser(1);
-        breadthFirstSearchDownload(url, depth, downloaded, extracted, errors, phaser);
+        breadthFirstSearchDownload(url, depth, downloaded, visited, errors, filter, phaser);
         phaser.arriveAndAwaitAdvance();
         return new Result(new ArrayList<>(downloaded), errors);
     }
 
     @Override
     public void close() {
+        scheduler.close();
         downloadersService.shutdown();
         extractorsService.shutdown();
     }
@@ -1,22 +1,61 @@
 package info.kgeorgiy.ja.nesterenko.walk;
 
 import java.io.BufferedReader;
-import java.io.BufferedWriter;
+import java.io.FilterOutputStream;
 import java.io.IOException;
-import java.io.Writer;
+import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.InvalidPathException;
 import java.nio.file.Path;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
 
 public abstract class AbstractWalk implements Walker {
+    private static final String STANDARD_STREAM = "-";
+    private static final String END_OF_INPUT = new String("end of input");
+
     private final Path inputPath;
     private final Path outputPath;
+    protected final WalkOptions options;
 
     public AbstractWalk(String[] args) throws WalkException {
         checkArgs(args);
         inputPath = stringToPath(args[0]);
         outputPath = stringToPath(args[1]);
-        createOutputDirectories(outputPath);
+        options = WalkOptions.parse(args, 2);
+        if (!isStandardStream(outputPath)) {
+            createOutputDirectories(outputPath);
+        }
+    }
+
+    private static boolean isStandardStream(Path path) {
+        return path.toString().equals(STANDARD_STREAM);
+    }
+
+    private BufferedReader openInput() throws IOException {
+        return isStandardStream(inputPath)
+                ? new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8))
+                : Files.newBufferedReader(inputPath);
+    }
+
+    private OutputStream openOutput() throws IOException {
+        if (!isStandardStream(outputPath)) {
+            return Files.newOutputStream(outputPath);
+        }
+        return new FilterOutputStream(System.out) {
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                out.write(b, off, len);
+            }
+
+            @Override
+            public void close() throws IOException {
+                flush();
+            }
+        };
     }
 
     protected void createOutputDirectories(Path file) throws WalkException {
@@ -30,8 +69,11 @@ public abstract class AbstractWalk implements Walker {
     }
 
     protected void checkArgs(String[] args) throws WalkException {
-        if (args == null || args.length != 2 || args[0] == null || args[1] == null) {
-            throw new WalkException("Expected two not null args in input");
+        if (args == null || args.length < 2 || args[0] == null || args[1] == null) {
+            throw new WalkException("Usage: <input file> <output file> [--threads N] [--window N]"
+                    + " [--map-threshold BYTES] [--cache FILE] [--hash pjw|xxhash64] [--format text|ndjson|binary]"
+                    + " [--parallel-traversal] [--sorted] [--stats text|json] [--stats-interval SECONDS]"
+                    + " [--chunk-size BYTES [--checkpoint-dir DIR]] [--pipeline]");
         }
     }
 
@@ -43,16 +85,110 @@ public abstract class AbstractWalk implements Walker {
         }
     }
 
-    abstract void walkPath(String file, Writer writer) throws WalkException;
+    abstract void walkPath(String file, OrderedWriter writer) throws WalkException;
+
+    protected void finish(OrderedWriter writer) throws WalkException {
+    }
+
+    private HashCache loadCache() throws WalkException {
+        if (options.getCacheFile() == null) {
+            return null;
+        }
+        Path cacheFile = stringToPath(options.getCacheFile());
+        createOutputDirectories(cacheFile);
+        try {
+            return HashCache.load(cacheFile, options.getHashName());
+        } catch (IOException e) {
+            throw new WalkException("Cache file reading error: " + e.getMessage());
+        }
+    }
+
+    private void saveCache(HashCache cache) throws WalkException {
+        try {
+            cache.save();
+        } catch (IOException e) {
+            throw new WalkException("Cache file writing error: " + e.getMessage());
+        }
+    }
+
+    private void processPipelined(BufferedReader reader, OrderedWriter results) throws IOException, WalkException {
+        BlockingQueue<String> lines = new ArrayBlockingQueue<>(options.getWindow());
+        IOException[] readError = new IOException[1];
+        Thread readerThread = new Thread(() -> {
+            try {
+                try {
+                    String line;
+                    while ((line = reader.readLine()) != null) {
+                        lines.put(line);
+                    }
+                } catch (IOException e) {
+                    readError[0] = e;
+                }
+                lines.put(END_OF_INPUT);
+            } catch (InterruptedException ignored) {
+            }
+        }, "walk-reader");
+        readerThread.setDaemon(true);
+        readerThread.start();
+        try {
+            String file;
+            while ((file = lines.take()) != END_OF_INPUT) {
+                walkPath(file, results);
+            }
+            readerThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while reading input");
+        } finally {
+            readerThread.interrupt();
+        }
+        if (readError[0] != null) {
+            throw readError[0];
+        }
+    }
+
+    private Path createCheckpointDirectory() throws WalkException {
+        if (options.getCheckpointDirectory() == null) {
+            return null;
+        }
+        Path directory = stringToPath(options.getCheckpointDirectory());
+        try {
+            return Files.createDirectories(directory);
+        } catch (IOException e) {
+            throw new WalkException("Couldn't create checkpoint directory: " + e.getMessage());
+        }
+    }
 
     public void process() throws WalkException {
-        try (BufferedReader reader = Files.newBufferedReader(inputPath)) {
-            try (BufferedWriter writer = Files.newBufferedWriter(outputPath)) {
+        HashCache cache = loadCache();
+        WalkStats stats = options.getStatsFormat() == null ? null
+                : new WalkStats(options.getStatsFormat().equals("json"), options.getStatsInterval());
+        try {
+            process(new PathHasher(options, cache, stats, createCheckpointDirectory()));
+        } finally {
+            if (stats != null) {
+                stats.close();
+            }
+        }
+        if (cache != null) {
+            saveCache(cache);
+        }
+    }
+
+    private void process(PathHasher hasher) throws WalkException {
+        try (BufferedReader reader = openInput()) {
+            try (ResultSink sink = options.getOutputFormat().newSink(openOutput());
+                 OrderedWriter results = new OrderedWriter(sink, options, hasher)) {
                 try {
-                    String file;
-                    while ((file = reader.readLine()) != null) {
-                        walkPath(file, writer);
+                    if (options.isPipeline()) {
+                        processPipelined(reader, results);
+                    } else {
+                        String file;
+                        while ((file = reader.readLine()) != null) {
+                            walkPath(file, results);
+                        }
                     }
+                    finish(results);
                 } catch (IOException e) {
                     throw new WalkException("Input file reading error: " + e.getMessage());
                 }
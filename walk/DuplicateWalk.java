@@ -0,0 +1,158 @@
+package info.kgeorgiy.ja.nesterenko.walk;
+
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+
+public class DuplicateWalk extends AbstractWalk {
+    private static final int PREFIX_LENGTH = 4096;
+
+    private final Map<Long, List<FileInfo>> filesBySize = new HashMap<>();
+    private final Set<Path> seen = new HashSet<>();
+
+    private static class FileInfo {
+        private final Path path;
+        private final BasicFileAttributes attrs;
+
+        private FileInfo(Path path, BasicFileAttributes attrs) {
+            this.path = path;
+            this.attrs = attrs;
+        }
+    }
+
+    public DuplicateWalk(String[] args) throws WalkException {
+        super(args);
+    }
+
+    public static void main(String[] args) {
+        try {
+            Walker walker = new DuplicateWalk(args);
+            walker.process();
+        } catch (WalkException e) {
+            System.err.println(e.getMessage());
+        }
+    }
+
+    protected void walkPath(String file, OrderedWriter writer) throws WalkException {
+        try {
+            Files.walkFileTree(Path.of(file), new SimpleFileVisitor<>() {
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                    if (attrs.isRegularFile() && seen.add(file.toAbsolutePath().normalize())) {
+                        filesBySize.computeIfAbsent(attrs.size(), size -> new ArrayList<>())
+                                .add(new FileInfo(file, attrs));
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFileFailed(Path file, IOException exc) {
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        } catch (InvalidPathException ignored) {
+        } catch (IOException e) {
+            throw new WalkException("Error while walking " + file + ": " + e.getMessage());
+        }
+    }
+
+    @Override
+    protected void finish(OrderedWriter writer) throws WalkException {
+        seen.clear();
+        PathHasher hasher = writer.getHasher();
+        HashAlgorithm algorithm = options.getHashAlgorithm();
+        List<List<FileInfo>> candidates = new ArrayList<>();
+        for (Map.Entry<Long, List<FileInfo>> group : filesBySize.entrySet()) {
+            if (group.getValue().size() > 1) {
+                candidates.add(group.getValue());
+            }
+        }
+        candidates.sort(Comparator.comparingLong((List<FileInfo> group) -> group.get(0).attrs.size()).reversed());
+        filesBySize.clear();
+
+        ExecutorService workers = Executors.newFixedThreadPool(options.getThreads());
+        try {
+            for (List<FileInfo> sameSize : candidates) {
+                long size = sameSize.get(0).attrs.size();
+                if (size == 0) {
+                    writeGroup(writer, algorithm.newHasher().getHash(), sameSize);
+                    continue;
+                }
+                for (List<FileInfo> samePrefix : groupByHash(workers, sameSize, this::prefixHash).values()) {
+                    if (samePrefix.size() < 2) {
+                        continue;
+                    }
+                    Map<Long, List<FileInfo>> sameHash = size <= PREFIX_LENGTH
+                            ? Map.of(hasher.getHash(samePrefix.get(0).path, samePrefix.get(0).attrs), samePrefix)
+                            : groupByHash(workers, samePrefix, file -> hasher.getHash(file.path, file.attrs));
+                    for (Map.Entry<Long, List<FileInfo>> group : sameHash.entrySet()) {
+                        if (group.getValue().size() > 1) {
+                            writeGroup(writer, group.getKey(), group.getValue());
+                        }
+                    }
+                }
+            }
+        } catch (IOException e) {
+            throw new WalkException("Error while writing to output file: " + e.getMessage());
+        } finally {
+            workers.shutdownNow();
+        }
+    }
+
+    private Long prefixHash(FileInfo file) {
+        try {
+            return FileHasher.getPrefixHash(file.path, options.getHashAlgorithm(), PREFIX_LENGTH);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private static Map<Long, List<FileInfo>> groupByHash(ExecutorService workers,
+                                                        List<FileInfo> files,
+                                                        Function<FileInfo, Long> hash) throws WalkException {
+        List<Callable<Long>> tasks = new ArrayList<>();
+        for (FileInfo file : files) {
+            tasks.add(() -> hash.apply(file));
+        }
+        Map<Long, List<FileInfo>> groups = new HashMap<>();
+        try {
+            List<Future<Long>> hashes = workers.invokeAll(tasks);
+            for (int i = 0; i < files.size(); i++) {
+                Long fileHash = hashes.get(i).get();
+                if (fileHash != null) {
+                    groups.computeIfAbsent(fileHash, h -> new ArrayList<>()).add(files.get(i));
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new WalkException("Interrupted while hashing files");
+        } catch (ExecutionException e) {
+            throw new WalkException("Failed to hash file: " + e.getCause().getMessage());
+        }
+        return groups;
+    }
+
+    private static void writeGroup(OrderedWriter writer, long hash, List<FileInfo> files) throws IOException {
+        files.sort(Comparator.comparing(file -> file.path));
+        for (FileInfo file : files) {
+            writer.write(hash, file.path.toString());
+        }
+    }
+}
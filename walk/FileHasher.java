@@ -1,30 +1,46 @@
 package info.kgeorgiy.ja.nesterenko.walk;
 
-import java.io.BufferedInputStream;
 import java.io.IOException;
-import java.io.InputStream;
-import java.nio.file.Files;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 
 public class FileHasher {
+    public static final long DEFAULT_MAP_THRESHOLD = 16L << 20;
+
     public static long getFileHash(Path file) {
-        long hash = 0;
-        byte[] bytes = new byte[1024];
-        try (InputStream reader = new BufferedInputStream(Files.newInputStream(file))) {
-            int c;
-            while ((c = reader.read(bytes)) >= 0) {
-                for (int i = 0; i < c; i++) {
-                    hash = (hash << 8) + (bytes[i] & 0xff);
-                    long high = hash & 0xff00_0000_0000_0000L;
-                    if (high != 0) {
-                        hash ^= high >> 48;
-                        hash &= ~high;
-                    }
-                }
-            }
-            return hash;
+        return getFileHash(file, StandardHashAlgorithm.PJW, DEFAULT_MAP_THRESHOLD);
+    }
+
+    public static long getFileHash(Path file, HashAlgorithm algorithm, long mapThreshold) {
+        try {
+            return hashFile(file, algorithm, mapThreshold);
         } catch (IOException e) {
             return 0;
         }
-    };
+    }
+
+    public static long hashFile(Path file, HashAlgorithm algorithm, long mapThreshold) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            Hasher hasher = algorithm.newHasher();
+            ReadBackend.forSize(size, mapThreshold).read(channel, size, hasher);
+            return hasher.getHash();
+        }
+    }
+
+    public static long getPrefixHash(Path file, HashAlgorithm algorithm, int length) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocate(length);
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer) < 0) {
+                    break;
+                }
+            }
+            Hasher hasher = algorithm.newHasher();
+            hasher.update(buffer.flip());
+            return hasher.getHash();
+        }
+    }
 }
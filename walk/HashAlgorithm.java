@@ -0,0 +1,23 @@
+package info.kgeorgiy.ja.nesterenko.walk;
+
+import java.util.ServiceLoader;
+
+public interface HashAlgorithm {
+    String getName();
+
+    Hasher newHasher();
+
+    static HashAlgorithm forName(String name) throws WalkException {
+        for (HashAlgorithm algorithm : StandardHashAlgorithm.values()) {
+            if (algorithm.getName().equals(name)) {
+                return algorithm;
+            }
+        }
+        for (HashAlgorithm algorithm : ServiceLoader.load(HashAlgorithm.class)) {
+            if (algorithm.getName().equals(name)) {
+                return algorithm;
+            }
+        }
+        throw new WalkException("Unknown hash algorithm: " + name);
+    }
+}
@@ -0,0 +1,45 @@
+package info.kgeorgiy.ja.nesterenko.walk;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.Random;
+import java.util.ServiceLoader;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+public class HashBenchmark {
+    private static final int WARMUP_ITERATIONS = 3;
+    private static final int ITERATIONS = 10;
+
+    public static void main(String[] args) {
+        final int megabytes = args != null && args.length > 0 && args[0] != null ? Integer.parseInt(args[0]) : 256;
+        ByteBuffer data = ByteBuffer.allocateDirect(megabytes << 20);
+        Random random = new Random(4875043285743285204L);
+        while (data.hasRemaining()) {
+            data.put((byte) random.nextInt());
+        }
+        List<HashAlgorithm> algorithms = Stream.concat(
+                Stream.of(StandardHashAlgorithm.values()),
+                ServiceLoader.load(HashAlgorithm.class).stream().map(ServiceLoader.Provider::get)
+        ).collect(Collectors.toList());
+        for (HashAlgorithm algorithm : algorithms) {
+            for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+                hash(algorithm, data);
+            }
+            long start = System.nanoTime();
+            long result = 0;
+            for (int i = 0; i < ITERATIONS; i++) {
+                result += hash(algorithm, data);
+            }
+            double seconds = (System.nanoTime() - start) / 1e9;
+            System.out.printf("%-10s %10.1f MiB/s (%016x)%n",
+                    algorithm.getName(), (double) megabytes * ITERATIONS / seconds, result);
+        }
+    }
+
+    private static long hash(HashAlgorithm algorithm, ByteBuffer data) {
+        Hasher hasher = algorithm.newHasher();
+        hasher.update(data.clear());
+        return hasher.getHash();
+    }
+}
@@ -0,0 +1,126 @@
+package info.kgeorgiy.ja.nesterenko.walk;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+public class HashCache {
+    private static final int MAGIC = 0x57414c4b;
+    private static final int VERSION = 2;
+
+    private final Path file;
+    private final String algorithm;
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final Set<String> seen = ConcurrentHashMap.newKeySet();
+
+    private static class Entry {
+        private final long size;
+        private final long modified;
+        private final String fileKey;
+        private final long hash;
+
+        private Entry(long size, long modified, String fileKey, long hash) {
+            this.size = size;
+            this.modified = modified;
+            this.fileKey = fileKey;
+            this.hash = hash;
+        }
+
+        private Entry(BasicFileAttributes attrs, long hash) {
+            this(attrs.size(), attrs.lastModifiedTime().to(TimeUnit.NANOSECONDS), fileKey(attrs), hash);
+        }
+
+        private boolean matches(BasicFileAttributes attrs) {
+            return size == attrs.size()
+                    && modified == attrs.lastModifiedTime().to(TimeUnit.NANOSECONDS)
+                    && fileKey.equals(fileKey(attrs));
+        }
+
+        private static String fileKey(BasicFileAttributes attrs) {
+            return Objects.toString(attrs.fileKey(), "");
+        }
+    }
+
+    private HashCache(Path file, String algorithm) {
+        this.file = file;
+        this.algorithm = algorithm;
+    }
+
+    public static HashCache load(Path file, String algorithm) throws IOException {
+        HashCache cache = new HashCache(file, algorithm);
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                throw new IOException("Unsupported cache file format: " + file);
+            }
+            if (!in.readUTF().equals(algorithm)) {
+                return cache;
+            }
+            for (int count = in.readInt(); count > 0; count--) {
+                String path = in.readUTF();
+                cache.entries.put(path, new Entry(in.readLong(), in.readLong(), in.readUTF(), in.readLong()));
+            }
+        } catch (NoSuchFileException ignored) {
+        }
+        return cache;
+    }
+
+    private static String key(Path file) {
+        return file.toAbsolutePath().toString();
+    }
+
+    public Long get(Path file, BasicFileAttributes attrs) {
+        if (!attrs.isRegularFile()) {
+            return null;
+        }
+        String key = key(file);
+        seen.add(key);
+        Entry entry = entries.get(key);
+        if (entry != null && entry.matches(attrs)) {
+            return entry.hash;
+        }
+        return null;
+    }
+
+    public void put(Path file, BasicFileAttributes attrs, long hash) {
+        if (attrs.isRegularFile() && hash != 0) {
+            entries.put(key(file), new Entry(attrs, hash));
+        }
+    }
+
+    public void save() throws IOException {
+        entries.keySet().removeIf(path -> !seen.contains(path) && Files.notExists(Path.of(path)));
+        Path temp = Files.createTempFile(file.toAbsolutePath().getParent(), file.getFileName().toString(), ".tmp");
+        try {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeUTF(algorithm);
+                Map<String, Entry> snapshot = Map.copyOf(entries);
+                out.writeInt(snapshot.size());
+                for (Map.Entry<String, Entry> e : snapshot.entrySet()) {
+                    Entry entry = e.getValue();
+                    out.writeUTF(e.getKey());
+                    out.writeLong(entry.size);
+                    out.writeLong(entry.modified);
+                    out.writeUTF(entry.fileKey);
+                    out.writeLong(entry.hash);
+                }
+            }
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+}
@@ -0,0 +1,9 @@
+package info.kgeorgiy.ja.nesterenko.walk;
+
+import java.nio.ByteBuffer;
+
+public interface Hasher {
+    void update(ByteBuffer buffer);
+
+    long getHash();
+}
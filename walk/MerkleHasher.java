@@ -0,0 +1,200 @@
+package info.kgeorgiy.ja.nesterenko.walk;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.TimeUnit;
+
+public class MerkleHasher {
+    private static final int MAGIC = 0x4d4b4c43;
+    private static final int VERSION = 1;
+    private static final int RECORD_SIZE = Integer.BYTES + Long.BYTES;
+
+    private final HashAlgorithm algorithm;
+    private final long chunkSize;
+    private final long mapThreshold;
+    private final Path checkpointDirectory;
+
+    public MerkleHasher(HashAlgorithm algorithm, long chunkSize, long mapThreshold, Path checkpointDirectory) {
+        this.algorithm = algorithm;
+        this.chunkSize = chunkSize;
+        this.mapThreshold = mapThreshold;
+        this.checkpointDirectory = checkpointDirectory;
+    }
+
+    public long hashFile(Path file, BasicFileAttributes attrs) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            final long size = channel.size();
+            final int chunks = (int) ((size + chunkSize - 1) / chunkSize);
+            if (chunks <= 1) {
+                Hasher hasher = algorithm.newHasher();
+                ReadBackend.forSize(size, mapThreshold).read(channel, size, hasher);
+                return hasher.getHash();
+            }
+
+            long[] digests = new long[chunks];
+            boolean[] done = new boolean[chunks];
+            Checkpoint checkpoint = checkpointDirectory == null ? null
+                    : new Checkpoint(checkpointDirectory, file, size, attrs);
+            if (checkpoint != null) {
+                checkpoint.load(digests, done);
+            }
+            List<ForkJoinTask<?>> tasks = new ArrayList<>();
+            for (int i = 0; i < chunks; i++) {
+                if (!done[i]) {
+                    final int chunk = i;
+                    tasks.add(ForkJoinTask.adapt(() -> {
+                        digests[chunk] = hashChunk(channel, chunk, size);
+                        if (checkpoint != null) {
+                            checkpoint.append(chunk, digests[chunk]);
+                        }
+                    }));
+                }
+            }
+            try {
+                ForkJoinTask.invokeAll(tasks);
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            } finally {
+                if (checkpoint != null) {
+                    checkpoint.close();
+                }
+            }
+            long root = combine(digests);
+            if (checkpoint != null) {
+                checkpoint.delete();
+            }
+            return root;
+        }
+    }
+
+    private long hashChunk(FileChannel channel, int chunk, long size) {
+        long position = chunk * chunkSize;
+        long length = Math.min(chunkSize, size - position);
+        Hasher hasher = algorithm.newHasher();
+        try {
+            ReadBackend.forSize(length, mapThreshold).readRange(channel, position, length, hasher);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return hasher.getHash();
+    }
+
+    private long combine(long[] digests) {
+        ByteBuffer pair = ByteBuffer.allocate(2 * Long.BYTES);
+        int count = digests.length;
+        while (count > 1) {
+            int next = 0;
+            for (int i = 0; i < count; i += 2) {
+                if (i + 1 == count) {
+                    digests[next++] = digests[i];
+                } else {
+                    Hasher hasher = algorithm.newHasher();
+                    hasher.update(pair.clear().putLong(digests[i]).putLong(digests[i + 1]).flip());
+                    digests[next++] = hasher.getHash();
+                }
+            }
+            count = next;
+        }
+        return digests[0];
+    }
+
+    private class Checkpoint {
+        private final Path file;
+        private final String path;
+        private final long size;
+        private final long modified;
+        private DataOutputStream out;
+
+        private Checkpoint(Path directory, Path file, long size, BasicFileAttributes attrs) {
+            this.path = file.toAbsolutePath().toString();
+            this.size = size;
+            this.modified = attrs.lastModifiedTime().to(TimeUnit.NANOSECONDS);
+            Hasher name = StandardHashAlgorithm.XXHASH64.newHasher();
+            name.update(ByteBuffer.wrap(path.getBytes(StandardCharsets.UTF_8)));
+            this.file = directory.resolve(String.format("%016x.ckpt", name.getHash()));
+        }
+
+        private boolean readHeader(DataInputStream in) throws IOException {
+            return in.readInt() == MAGIC && in.readInt() == VERSION
+                    && in.readUTF().equals(path) && in.readUTF().equals(algorithm.getName())
+                    && in.readLong() == chunkSize && in.readLong() == size && in.readLong() == modified;
+        }
+
+        private byte[] header() throws IOException {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream header = new DataOutputStream(bytes);
+            header.writeInt(MAGIC);
+            header.writeInt(VERSION);
+            header.writeUTF(path);
+            header.writeUTF(algorithm.getName());
+            header.writeLong(chunkSize);
+            header.writeLong(size);
+            header.writeLong(modified);
+            return bytes.toByteArray();
+        }
+
+        private void load(long[] digests, boolean[] done) throws IOException {
+            byte[] header = header();
+            long valid = -1;
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+                if (readHeader(in)) {
+                    valid = header.length;
+                    while (true) {
+                        int chunk = in.readInt();
+                        long digest = in.readLong();
+                        if (0 <= chunk && chunk < digests.length) {
+                            digests[chunk] = digest;
+                            done[chunk] = true;
+                        }
+                        valid += RECORD_SIZE;
+                    }
+                }
+            } catch (NoSuchFileException | EOFException ignored) {
+            }
+            if (valid >= 0) {
+                try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+                    channel.truncate(valid);
+                }
+                out = new DataOutputStream(Files.newOutputStream(file, StandardOpenOption.APPEND));
+            } else {
+                out = new DataOutputStream(Files.newOutputStream(file));
+                out.write(header);
+                out.flush();
+            }
+        }
+
+        private synchronized void append(int chunk, long digest) {
+            try {
+                out.writeInt(chunk);
+                out.writeLong(digest);
+                out.flush();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        private synchronized void close() throws IOException {
+            out.close();
+        }
+
+        private void delete() throws IOException {
+            Files.deleteIfExists(file);
+        }
+    }
+}
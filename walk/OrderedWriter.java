@@ -0,0 +1,166 @@
+package info.kgeorgiy.ja.nesterenko.walk;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+public class OrderedWriter implements Closeable {
+    private static final Entry END = new Entry(null, null);
+
+    private final ResultSink sink;
+    private final ExecutorService workers;
+    private final int window;
+    private final PathHasher hasher;
+    private final Queue<Entry> pending = new ArrayDeque<>();
+    private final BlockingQueue<Entry> writeQueue;
+    private final Thread writerThread;
+    private volatile IOException writeError;
+
+    private static class Entry {
+        private final String path;
+        private final Future<Long> hash;
+
+        private Entry(String path, Future<Long> hash) {
+            this.path = path;
+            this.hash = hash;
+        }
+    }
+
+    public OrderedWriter(ResultSink sink, WalkOptions options, PathHasher hasher) {
+        this.sink = sink;
+        this.workers = options.getThreads() > 1 || options.isPipeline()
+                ? Executors.newFixedThreadPool(options.getThreads()) : null;
+        this.window = options.getWindow();
+        this.hasher = hasher;
+        if (options.isPipeline()) {
+            writeQueue = new ArrayBlockingQueue<>(window);
+            writerThread = new Thread(this::writeLoop, "walk-writer");
+            writerThread.start();
+        } else {
+            writeQueue = null;
+            writerThread = null;
+        }
+    }
+
+    public PathHasher getHasher() {
+        return hasher;
+    }
+
+    public void write(long hash, String path) throws IOException {
+        if (workers == null) {
+            writeResult(hash, path);
+        } else {
+            enqueue(new Entry(path, CompletableFuture.completedFuture(hash)));
+        }
+    }
+
+    public void fail(String path) throws IOException {
+        hasher.recordFailure();
+        write(0, path);
+    }
+
+    public void hash(Path file, BasicFileAttributes attrs, String path) throws IOException {
+        Long cached = hasher.getCachedHash(file, attrs);
+        if (cached != null) {
+            write(cached, path);
+        } else if (workers == null) {
+            writeResult(hasher.computeHash(file, attrs), path);
+        } else {
+            enqueue(new Entry(path, workers.submit(() -> hasher.computeHash(file, attrs))));
+        }
+    }
+
+    private void enqueue(Entry entry) throws IOException {
+        if (writeQueue != null) {
+            checkWriteError();
+            put(entry);
+            return;
+        }
+        pending.add(entry);
+        while (!pending.isEmpty() && (pending.size() > window || pending.peek().hash.isDone())) {
+            writeEntry(pending.remove());
+        }
+    }
+
+    private void put(Entry entry) throws IOException {
+        try {
+            writeQueue.put(entry);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for output");
+        }
+    }
+
+    private void checkWriteError() throws IOException {
+        if (writeError != null) {
+            throw writeError;
+        }
+    }
+
+    private void writeLoop() {
+        try {
+            Entry entry;
+            while ((entry = writeQueue.take()) != END) {
+                if (writeError == null) {
+                    try {
+                        writeEntry(entry);
+                    } catch (IOException e) {
+                        writeError = e;
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            writeError = new InterruptedIOException("Writer interrupted");
+        }
+    }
+
+    private void writeEntry(Entry entry) throws IOException {
+        try {
+            writeResult(entry.hash.get(), entry.path);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while hashing " + entry.path);
+        } catch (ExecutionException e) {
+            throw new IOException("Failed to hash " + entry.path + ": " + e.getCause().getMessage());
+        }
+    }
+
+    private void writeResult(long hash, String path) throws IOException {
+        sink.write(hash, path);
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            if (writerThread != null) {
+                put(END);
+                try {
+                    writerThread.join();
+                } catch (InterruptedException e) {
+                    writerThread.interrupt();
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Interrupted while waiting for output");
+                }
+                checkWriteError();
+            }
+            while (!pending.isEmpty()) {
+                writeEntry(pending.remove());
+            }
+        } finally {
+            if (workers != null) {
+                workers.shutdownNow();
+            }
+        }
+    }
+}
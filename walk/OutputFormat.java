@@ -0,0 +1,84 @@
+package info.kgeorgiy.ja.nesterenko.walk;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+public enum OutputFormat {
+    TEXT {
+        @Override
+        public ResultSink newSink(OutputStream out) {
+            return new ResultSink(out) {
+                private final String lineSeparator = System.lineSeparator();
+
+                @Override
+                public void write(long hash, String path) throws IOException {
+                    ensure(17 + maxUtf8Length(path) + lineSeparator.length());
+                    putHex(hash);
+                    buffer[position++] = ' ';
+                    putUtf8(path);
+                    putAscii(lineSeparator);
+                }
+            };
+        }
+    },
+    NDJSON {
+        @Override
+        public ResultSink newSink(OutputStream out) {
+            return new ResultSink(out) {
+                private static final String HASH_PREFIX = "{\"hash\":\"";
+                private static final String PATH_PREFIX = "\",\"path\":\"";
+                private static final String RECORD_END = "\"}\n";
+                private static final int FIXED_LENGTH = HASH_PREFIX.length() + 16 + PATH_PREFIX.length()
+                        + RECORD_END.length();
+
+                @Override
+                public void write(long hash, String path) throws IOException {
+                    ensure(FIXED_LENGTH + 6 * path.length());
+                    putAscii(HASH_PREFIX);
+                    putHex(hash);
+                    putAscii(PATH_PREFIX);
+                    putJsonString(path);
+                    putAscii(RECORD_END);
+                }
+
+                private void putJsonString(String s) {
+                    int from = 0;
+                    for (int i = 0; i < s.length(); i++) {
+                        char c = s.charAt(i);
+                        if (c == '"' || c == '\\' || c < 0x20) {
+                            putUtf8(s, from, i);
+                            buffer[position++] = '\\';
+                            if (c == '"' || c == '\\') {
+                                buffer[position++] = (byte) c;
+                            } else {
+                                putAscii("u00");
+                                buffer[position++] = HEX[c >> 4];
+                                buffer[position++] = HEX[c & 0xf];
+                            }
+                            from = i + 1;
+                        }
+                    }
+                    putUtf8(s, from, s.length());
+                }
+            };
+        }
+    },
+    BINARY {
+        @Override
+        public ResultSink newSink(OutputStream out) {
+            return new ResultSink(out) {
+                @Override
+                public void write(long hash, String path) throws IOException {
+                    ensure(12 + maxUtf8Length(path));
+                    putLong(hash);
+                    final int lengthPosition = position;
+                    position += 4;
+                    putUtf8(path);
+                    putInt(lengthPosition, position - lengthPosition - 4);
+                }
+            };
+        }
+    };
+
+    public abstract ResultSink newSink(OutputStream out);
+}
@@ -0,0 +1,182 @@
+package info.kgeorgiy.ja.nesterenko.walk;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryIteratorException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+
+public class ParallelTreeWalker {
+    private static final int FILE_BATCH_SIZE = 32;
+
+    private final ForkJoinPool pool;
+    private final OrderedWriter writer;
+    private final PathHasher hasher;
+    private final boolean sorted;
+
+    private static class Result {
+        private final long hash;
+        private final String path;
+
+        private Result(long hash, String path) {
+            this.hash = hash;
+            this.path = path;
+        }
+    }
+
+    private static class Entry {
+        private final Path path;
+        private final BasicFileAttributes attrs;
+
+        private Entry(Path path, BasicFileAttributes attrs) {
+            this.path = path;
+            this.attrs = attrs;
+        }
+    }
+
+    public ParallelTreeWalker(ForkJoinPool pool, OrderedWriter writer, boolean sorted) {
+        this.pool = pool;
+        this.writer = writer;
+        this.hasher = writer.getHasher();
+        this.sorted = sorted;
+    }
+
+    public void walk(Path start) throws IOException {
+        try {
+            List<Result> results = pool.invoke(new PathTask(start));
+            for (Result result : results) {
+                writer.write(result.hash, result.path);
+            }
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    private List<Result> emit(List<Result> results) {
+        if (sorted) {
+            return results;
+        }
+        synchronized (writer) {
+            try {
+                for (Result result : results) {
+                    writer.write(result.hash, result.path);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        return List.of();
+    }
+
+    private static BasicFileAttributes readAttributes(Path file) {
+        try {
+            return Files.readAttributes(file, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private Result hash(Entry entry) {
+        if (entry.attrs == null) {
+            hasher.recordFailure();
+            return new Result(0, entry.path.toString());
+        }
+        return new Result(hasher.getHash(entry.path, entry.attrs), entry.path.toString());
+    }
+
+    private class PathTask extends RecursiveTask<List<Result>> {
+        private final Path start;
+
+        private PathTask(Path start) {
+            this.start = start;
+        }
+
+        @Override
+        protected List<Result> compute() {
+            Entry entry = new Entry(start, readAttributes(start));
+            if (entry.attrs != null && entry.attrs.isDirectory()) {
+                return new DirectoryTask(start).compute();
+            }
+            return emit(List.of(hash(entry)));
+        }
+    }
+
+    private class DirectoryTask extends RecursiveTask<List<Result>> {
+        private final Path directory;
+
+        private DirectoryTask(Path directory) {
+            this.directory = directory;
+        }
+
+        @Override
+        protected List<Result> compute() {
+            List<Entry> entries = new ArrayList<>();
+            try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory)) {
+                for (Path child : stream) {
+                    entries.add(new Entry(child, readAttributes(child)));
+                }
+            } catch (IOException e) {
+                hasher.recordFailure();
+                return emit(List.of(new Result(0, directory.toString())));
+            } catch (DirectoryIteratorException e) {
+                throw new UncheckedIOException(e.getCause());
+            }
+            if (sorted) {
+                entries.sort(Comparator.comparing(entry -> entry.path.getFileName()));
+            }
+
+            List<ForkJoinTask<List<Result>>> children = new ArrayList<>();
+            List<Entry> files = new ArrayList<>();
+            for (Entry entry : entries) {
+                if (entry.attrs != null && entry.attrs.isDirectory()) {
+                    if (!files.isEmpty()) {
+                        children.add(new FileBatchTask(files));
+                        files = new ArrayList<>();
+                    }
+                    children.add(new DirectoryTask(entry.path));
+                } else {
+                    files.add(entry);
+                    if (files.size() == FILE_BATCH_SIZE) {
+                        children.add(new FileBatchTask(files));
+                        files = new ArrayList<>();
+                    }
+                }
+            }
+            if (!files.isEmpty()) {
+                children.add(new FileBatchTask(files));
+            }
+
+            List<Result> results = new ArrayList<>();
+            for (ForkJoinTask<List<Result>> child : ForkJoinTask.invokeAll(children)) {
+                results.addAll(child.join());
+            }
+            return results;
+        }
+    }
+
+    private class FileBatchTask extends RecursiveTask<List<Result>> {
+        private final List<Entry> files;
+
+        private FileBatchTask(List<Entry> files) {
+            this.files = files;
+        }
+
+        @Override
+        protected List<Result> compute() {
+            List<Result> results = new ArrayList<>(files.size());
+            for (Entry file : files) {
+                results.add(hash(file));
+            }
+            return emit(results);
+        }
+    }
+}
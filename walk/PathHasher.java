@@ -0,0 +1,78 @@
+package info.kgeorgiy.ja.nesterenko.walk;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+
+public class PathHasher {
+    private final HashAlgorithm algorithm;
+    private final long mapThreshold;
+    private final HashCache cache;
+    private final WalkStats stats;
+    private final MerkleHasher merkle;
+
+    public PathHasher(WalkOptions options, HashCache cache, WalkStats stats, Path checkpointDirectory) {
+        this.algorithm = options.getHashAlgorithm();
+        this.mapThreshold = options.getMapThreshold();
+        this.cache = cache;
+        this.stats = stats;
+        this.merkle = options.getChunkSize() == 0 ? null
+                : new MerkleHasher(algorithm, options.getChunkSize(), mapThreshold, checkpointDirectory);
+    }
+
+    public Long getCachedHash(Path file, BasicFileAttributes attrs) {
+        if (cache == null) {
+            return null;
+        }
+        Long hash = cache.get(file, attrs);
+        if (stats != null) {
+            if (hash != null) {
+                stats.fileCached();
+            } else if (attrs.isRegularFile()) {
+                stats.cacheMissed();
+            }
+        }
+        return hash;
+    }
+
+    public long computeHash(Path file, BasicFileAttributes attrs) {
+        long hash;
+        if (stats == null) {
+            try {
+                hash = hashFile(file, attrs);
+            } catch (IOException e) {
+                hash = 0;
+            }
+        } else {
+            long start = System.nanoTime();
+            try {
+                hash = hashFile(file, attrs);
+                stats.fileHashed(file.toString(), attrs.size(), System.nanoTime() - start);
+            } catch (IOException e) {
+                stats.fileFailed();
+                hash = 0;
+            }
+        }
+        if (cache != null) {
+            cache.put(file, attrs, hash);
+        }
+        return hash;
+    }
+
+    private long hashFile(Path file, BasicFileAttributes attrs) throws IOException {
+        return merkle == null
+                ? FileHasher.hashFile(file, algorithm, mapThreshold)
+                : merkle.hashFile(file, attrs);
+    }
+
+    public void recordFailure() {
+        if (stats != null) {
+            stats.fileFailed();
+        }
+    }
+
+    public long getHash(Path file, BasicFileAttributes attrs) {
+        Long cached = getCachedHash(file, attrs);
+        return cached != null ? cached : computeHash(file, attrs);
+    }
+}
@@ -0,0 +1,28 @@
+package info.kgeorgiy.ja.nesterenko.walk;
+
+import java.nio.ByteBuffer;
+
+public class PjwHash implements Hasher {
+    private long hash = 0;
+
+    @Override
+    public void update(ByteBuffer buffer) {
+        long hash = this.hash;
+        final int limit = buffer.limit();
+        for (int i = buffer.position(); i < limit; i++) {
+            hash = (hash << 8) + (buffer.get(i) & 0xff);
+            long high = hash & 0xff00_0000_0000_0000L;
+            if (high != 0) {
+                hash ^= high >> 48;
+                hash &= ~high;
+            }
+        }
+        buffer.position(limit);
+        this.hash = hash;
+    }
+
+    @Override
+    public long getHash() {
+        return hash;
+    }
+}
@@ -0,0 +1,67 @@
+package info.kgeorgiy.ja.nesterenko.walk;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+public enum ReadBackend {
+    MAPPED {
+        private static final long REGION_SIZE = 1L << 30;
+
+        @Override
+        void read(FileChannel channel, long size, Hasher hash) throws IOException {
+            readRange(channel, 0, size, hash);
+        }
+
+        @Override
+        void readRange(FileChannel channel, long position, long length, Hasher hash) throws IOException {
+            final long end = position + length;
+            for (; position < end; position += REGION_SIZE) {
+                MappedByteBuffer region = channel.map(FileChannel.MapMode.READ_ONLY,
+                        position, Math.min(REGION_SIZE, end - position));
+                hash.update(region);
+            }
+        }
+    },
+    DIRECT {
+        private static final int BUFFER_SIZE = 1 << 16;
+        private final ThreadLocal<ByteBuffer> buffers =
+                ThreadLocal.withInitial(() -> ByteBuffer.allocateDirect(BUFFER_SIZE));
+
+        @Override
+        void read(FileChannel channel, long size, Hasher hash) throws IOException {
+            ByteBuffer buffer = buffers.get();
+            buffer.clear();
+            while (channel.read(buffer) >= 0) {
+                buffer.flip();
+                hash.update(buffer);
+                buffer.clear();
+            }
+        }
+
+        @Override
+        void readRange(FileChannel channel, long position, long length, Hasher hash) throws IOException {
+            ByteBuffer buffer = buffers.get();
+            final long end = position + length;
+            while (position < end) {
+                buffer.clear().limit((int) Math.min(buffer.capacity(), end - position));
+                int read = channel.read(buffer, position);
+                if (read < 0) {
+                    break;
+                }
+                position += read;
+                buffer.flip();
+                hash.update(buffer);
+            }
+        }
+    };
+
+    abstract void read(FileChannel channel, long size, Hasher hash) throws IOException;
+
+    abstract void readRange(FileChannel channel, long position, long length, Hasher hash) throws IOException;
+
+    public static ReadBackend forSize(long size, long mapThreshold) {
+        return size >= mapThreshold ? MAPPED : DIRECT;
+    }
+}
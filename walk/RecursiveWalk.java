@@ -2,8 +2,11 @@ package info.kgeorgiy.ja.nesterenko.walk;
 
 import java.io.*;
 import java.nio.file.*;
+import java.util.concurrent.ForkJoinPool;
 
 public class RecursiveWalk extends AbstractWalk {
+    private ForkJoinPool traversalPool;
+
     public RecursiveWalk(String[] args) throws WalkException {
         super(args);
     }
@@ -17,13 +20,31 @@ public class RecursiveWalk extends AbstractWalk {
         }
     }
 
-    protected void walkPath(String file, Writer writer) throws WalkException {
+    @Override
+    public void process() throws WalkException {
+        try {
+            super.process();
+        } finally {
+            if (traversalPool != null) {
+                traversalPool.shutdown();
+            }
+        }
+    }
+
+    protected void walkPath(String file, OrderedWriter writer) throws WalkException {
         try {
             try {
-                FileVisitor<Path> visitor = new WalkFileVisitor(writer);
-                Files.walkFileTree(Path.of(file), visitor);
+                if (options.isParallelTraversal()) {
+                    if (traversalPool == null) {
+                        traversalPool = new ForkJoinPool(options.getThreads());
+                    }
+                    new ParallelTreeWalker(traversalPool, writer, options.isSorted()).walk(Path.of(file));
+                } else {
+                    FileVisitor<Path> visitor = new WalkFileVisitor(writer);
+                    Files.walkFileTree(Path.of(file), visitor);
+                }
             } catch (InvalidPathException e) {
-                writer.write(String.format("%016x %s%n", 0, file));
+                writer.fail(file);
             }
         } catch (IOException e) {
             throw new WalkException("Error while writing to output file: " + e.getMessage());
@@ -0,0 +1,105 @@
+package info.kgeorgiy.ja.nesterenko.walk;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+public abstract class ResultSink implements Closeable {
+    private static final int BUFFER_SIZE = 1 << 20;
+    protected static final byte[] HEX = "0123456789abcdef".getBytes();
+
+    private final OutputStream out;
+    protected byte[] buffer = new byte[BUFFER_SIZE];
+    protected int position = 0;
+
+    protected ResultSink(OutputStream out) {
+        this.out = out;
+    }
+
+    public abstract void write(long hash, String path) throws IOException;
+
+    protected void ensure(int bytes) throws IOException {
+        if (buffer.length - position < bytes) {
+            flushBuffer();
+            if (buffer.length < bytes) {
+                buffer = Arrays.copyOf(buffer, bytes);
+            }
+        }
+    }
+
+    protected static int maxUtf8Length(String s) {
+        return 3 * s.length();
+    }
+
+    protected void putHex(long value) {
+        for (int shift = 60; shift >= 0; shift -= 4) {
+            buffer[position++] = HEX[(int) (value >>> shift) & 0xf];
+        }
+    }
+
+    protected void putLong(long value) {
+        for (int shift = 56; shift >= 0; shift -= 8) {
+            buffer[position++] = (byte) (value >>> shift);
+        }
+    }
+
+    protected void putInt(int at, int value) {
+        for (int shift = 24; shift >= 0; shift -= 8) {
+            buffer[at++] = (byte) (value >>> shift);
+        }
+    }
+
+    protected void putAscii(String s) {
+        for (int i = 0; i < s.length(); i++) {
+            buffer[position++] = (byte) s.charAt(i);
+        }
+    }
+
+    protected void putUtf8(String s) {
+        putUtf8(s, 0, s.length());
+    }
+
+    protected void putUtf8(String s, int from, int to) {
+        for (int i = from; i < to; i++) {
+            char c = s.charAt(i);
+            if (c < 0x80) {
+                buffer[position++] = (byte) c;
+            } else if (c < 0x800) {
+                buffer[position++] = (byte) (0xc0 | c >> 6);
+                buffer[position++] = (byte) (0x80 | c & 0x3f);
+            } else if (Character.isHighSurrogate(c) && i + 1 < to && Character.isLowSurrogate(s.charAt(i + 1))) {
+                int cp = Character.toCodePoint(c, s.charAt(++i));
+                buffer[position++] = (byte) (0xf0 | cp >> 18);
+                buffer[position++] = (byte) (0x80 | cp >> 12 & 0x3f);
+                buffer[position++] = (byte) (0x80 | cp >> 6 & 0x3f);
+                buffer[position++] = (byte) (0x80 | cp & 0x3f);
+            } else if (Character.isSurrogate(c)) {
+                buffer[position++] = '?';
+            } else {
+                buffer[position++] = (byte) (0xe0 | c >> 12);
+                buffer[position++] = (byte) (0x80 | c >> 6 & 0x3f);
+                buffer[position++] = (byte) (0x80 | c & 0x3f);
+            }
+        }
+    }
+
+    private void flushBuffer() throws IOException {
+        out.write(buffer, 0, position);
+        position = 0;
+    }
+
+    public void flush() throws IOException {
+        flushBuffer();
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            flushBuffer();
+        } finally {
+            out.close();
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package info.kgeorgiy.ja.nesterenko.walk;
+
+import java.util.function.Supplier;
+
+public enum StandardHashAlgorithm implements HashAlgorithm {
+    PJW("pjw", PjwHash::new),
+    XXHASH64("xxhash64", XxHash64::new);
+
+    private final String name;
+    private final Supplier<Hasher> factory;
+
+    StandardHashAlgorithm(String name, Supplier<Hasher> factory) {
+        this.name = name;
+        this.factory = factory;
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public Hasher newHasher() {
+        return factory.get();
+    }
+}
@@ -1,10 +1,10 @@
 package info.kgeorgiy.ja.nesterenko.walk;
 
 import java.io.IOException;
-import java.io.Writer;
 import java.nio.file.Files;
 import java.nio.file.InvalidPathException;
 import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
 
 public class Walk extends AbstractWalk {
     public Walk(String[] args) throws WalkException {
@@ -20,19 +20,31 @@ public class Walk extends AbstractWalk {
         }
     }
 
-    protected void walkPath(String file, Writer writer) throws WalkException {
+    protected void walkPath(String file, OrderedWriter writer) throws WalkException {
         try {
             try {
-                if (Files.isDirectory(Path.of(file))) {
-                    writer.write(String.format("%016x %s%n", 0, file));
+                Path path = Path.of(file);
+                BasicFileAttributes attrs = readAttributes(path);
+                if (attrs == null) {
+                    writer.fail(file);
+                } else if (attrs.isDirectory()) {
+                    writer.write(0, file);
                 } else {
-                    writer.write(String.format("%016x %s%n", FileHasher.getFileHash(Path.of(file)), file));
+                    writer.hash(path, attrs, file);
                 }
             } catch (InvalidPathException e) {
-                writer.write(String.format("%016x %s%n", 0, file));
+                writer.fail(file);
             }
         } catch (IOException e) {
             throw new WalkException("Error while writing to output file: " + e.getMessage());
         }
     }
+
+    private static BasicFileAttributes readAttributes(Path path) {
+        try {
+            return Files.readAttributes(path, BasicFileAttributes.class);
+        } catch (IOException e) {
+            return null;
+        }
+    }
 }
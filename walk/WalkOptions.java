@@ -0,0 +1,157 @@
+package info.kgeorgiy.ja.nesterenko.walk;
+
+public class WalkOptions {
+    private static final long MIN_CHUNK_SIZE = 1 << 16;
+
+    private int threads = 1;
+    private int window = 1024;
+    private long mapThreshold = FileHasher.DEFAULT_MAP_THRESHOLD;
+    private String cacheFile = null;
+    private HashAlgorithm hashAlgorithm = StandardHashAlgorithm.PJW;
+    private OutputFormat outputFormat = OutputFormat.TEXT;
+    private boolean parallelTraversal = false;
+    private boolean sorted = false;
+    private String statsFormat = null;
+    private int statsInterval = 10;
+    private long chunkSize = 0;
+    private String checkpointDirectory = null;
+    private boolean pipeline = false;
+
+    public static WalkOptions parse(String[] args, int from) throws WalkException {
+        WalkOptions options = new WalkOptions();
+        for (int i = from; i < args.length; i++) {
+            if (args[i] == null) {
+                throw new WalkException("Expected not null options");
+            }
+            switch (args[i]) {
+                case "--threads" -> options.threads = parsePositiveInt(args, ++i);
+                case "--window" -> options.window = parsePositiveInt(args, ++i);
+                case "--map-threshold" -> options.mapThreshold = parsePositiveLong(args, ++i);
+                case "--cache" -> options.cacheFile = parseValue(args, ++i);
+                case "--hash" -> options.hashAlgorithm = HashAlgorithm.forName(parseValue(args, ++i));
+                case "--format" -> options.outputFormat = parseFormat(args, ++i);
+                case "--parallel-traversal" -> options.parallelTraversal = true;
+                case "--sorted" -> options.sorted = true;
+                case "--stats" -> options.statsFormat = parseStatsFormat(args, ++i);
+                case "--stats-interval" -> options.statsInterval = parsePositiveInt(args, ++i);
+                case "--chunk-size" -> options.chunkSize = parseChunkSize(args, ++i);
+                case "--checkpoint-dir" -> options.checkpointDirectory = parseValue(args, ++i);
+                case "--pipeline" -> options.pipeline = true;
+                default -> throw new WalkException("Unknown option: " + args[i]);
+            }
+        }
+        if (options.checkpointDirectory != null && options.chunkSize == 0) {
+            throw new WalkException("--checkpoint-dir requires --chunk-size");
+        }
+        return options;
+    }
+
+    private static String parseValue(String[] args, int i) throws WalkException {
+        if (i >= args.length || args[i] == null) {
+            throw new WalkException("Expected value for option " + args[i - 1]);
+        }
+        return args[i];
+    }
+
+    private static OutputFormat parseFormat(String[] args, int i) throws WalkException {
+        String format = parseValue(args, i);
+        try {
+            return OutputFormat.valueOf(format.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new WalkException("Unknown output format: " + format);
+        }
+    }
+
+    private static String parseStatsFormat(String[] args, int i) throws WalkException {
+        String format = parseValue(args, i);
+        if (!format.equals("text") && !format.equals("json")) {
+            throw new WalkException("Unknown stats format: " + format);
+        }
+        return format;
+    }
+
+    private static long parseChunkSize(String[] args, int i) throws WalkException {
+        long chunkSize = parsePositiveLong(args, i);
+        if (chunkSize < MIN_CHUNK_SIZE) {
+            throw new WalkException("Chunk size should be at least " + MIN_CHUNK_SIZE + ": " + chunkSize);
+        }
+        return chunkSize;
+    }
+
+    private static int parsePositiveInt(String[] args, int i) throws WalkException {
+        long value = parsePositiveLong(args, i);
+        if (value > Integer.MAX_VALUE) {
+            throw new WalkException("Value for option " + args[i - 1] + " is too big: " + value);
+        }
+        return (int) value;
+    }
+
+    private static long parsePositiveLong(String[] args, int i) throws WalkException {
+        String arg = parseValue(args, i);
+        try {
+            long value = Long.parseLong(arg);
+            if (value <= 0) {
+                throw new WalkException("Expected positive value for option " + args[i - 1] + ": " + value);
+            }
+            return value;
+        } catch (NumberFormatException e) {
+            throw new WalkException("Illegal value for option " + args[i - 1] + ": " + e.getMessage());
+        }
+    }
+
+    public int getThreads() {
+        return threads;
+    }
+
+    public int getWindow() {
+        return window;
+    }
+
+    public long getMapThreshold() {
+        return mapThreshold;
+    }
+
+    public String getCacheFile() {
+        return cacheFile;
+    }
+
+    public HashAlgorithm getHashAlgorithm() {
+        return hashAlgorithm;
+    }
+
+    public OutputFormat getOutputFormat() {
+        return outputFormat;
+    }
+
+    public boolean isParallelTraversal() {
+        return parallelTraversal || sorted;
+    }
+
+    public boolean isSorted() {
+        return sorted;
+    }
+
+    public String getStatsFormat() {
+        return statsFormat;
+    }
+
+    public int getStatsInterval() {
+        return statsInterval;
+    }
+
+    public long getChunkSize() {
+        return chunkSize;
+    }
+
+    public String getCheckpointDirectory() {
+        return checkpointDirectory;
+    }
+
+    public boolean isPipeline() {
+        return pipeline;
+    }
+
+    public String getHashName() {
+        return chunkSize == 0 ? hashAlgorithm.getName() : "merkle-" + hashAlgorithm.getName() + "-" + chunkSize;
+    }
+}
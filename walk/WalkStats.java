@@ -0,0 +1,168 @@
+package info.kgeorgiy.ja.nesterenko.walk;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.PriorityQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+public class WalkStats implements Closeable {
+    private static final int SLOWEST_COUNT = 10;
+    private static final double[] PERCENTILES = {0.5, 0.9, 0.99, 1.0};
+    private static final String[] PERCENTILE_NAMES = {"p50", "p90", "p99", "max"};
+
+    private final boolean json;
+    private final long start = System.nanoTime();
+    private final LongAdder files = new LongAdder();
+    private final LongAdder bytes = new LongAdder();
+    private final LongAdder cached = new LongAdder();
+    private final LongAdder cacheMisses = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final AtomicLongArray latencies = new AtomicLongArray(Long.SIZE);
+    private final PriorityQueue<SlowFile> slowest = new PriorityQueue<>(Comparator.comparingLong(file -> file.nanos));
+    private volatile long slowThreshold = 0;
+    private final ScheduledExecutorService reporter;
+
+    private static class SlowFile {
+        private final String path;
+        private final long nanos;
+
+        private SlowFile(String path, long nanos) {
+            this.path = path;
+            this.nanos = nanos;
+        }
+    }
+
+    public WalkStats(boolean json, long intervalSeconds) {
+        this.json = json;
+        reporter = Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread thread = new Thread(task, "walk-stats");
+            thread.setDaemon(true);
+            return thread;
+        });
+        reporter.scheduleAtFixedRate(() -> System.err.println(report(false)),
+                intervalSeconds, intervalSeconds, TimeUnit.SECONDS);
+    }
+
+    public void fileHashed(String path, long size, long nanos) {
+        files.increment();
+        bytes.add(size);
+        latencies.incrementAndGet(Long.SIZE - 1 - Long.numberOfLeadingZeros(Math.max(nanos, 1)));
+        if (nanos > slowThreshold) {
+            synchronized (slowest) {
+                slowest.add(new SlowFile(path, nanos));
+                if (slowest.size() > SLOWEST_COUNT) {
+                    slowest.poll();
+                    slowThreshold = slowest.element().nanos;
+                }
+            }
+        }
+    }
+
+    public void fileCached() {
+        cached.increment();
+    }
+
+    public void cacheMissed() {
+        cacheMisses.increment();
+    }
+
+    public void fileFailed() {
+        failures.increment();
+    }
+
+    private long percentile(double fraction) {
+        long total = 0;
+        for (int i = 0; i < latencies.length(); i++) {
+            total += latencies.get(i);
+        }
+        long rank = (long) Math.ceil(total * fraction);
+        long count = 0;
+        for (int i = 0; i < latencies.length(); i++) {
+            count += latencies.get(i);
+            if (count >= rank && count > 0) {
+                return 2L << i;
+            }
+        }
+        return 0;
+    }
+
+    private List<SlowFile> getSlowest() {
+        List<SlowFile> result;
+        synchronized (slowest) {
+            result = new ArrayList<>(slowest);
+        }
+        result.sort(Comparator.comparingLong((SlowFile file) -> file.nanos).reversed());
+        return result;
+    }
+
+    public String report(boolean summary) {
+        double seconds = (System.nanoTime() - start) / 1e9;
+        long files = this.files.sum();
+        long bytes = this.bytes.sum();
+        if (!json) {
+            StringBuilder sb = new StringBuilder(String.format(Locale.ROOT,
+                    "%s: %.1fs, %d files (%.1f/s), %.1f MiB (%.1f MiB/s), %d cached, %d cache misses, %d failed",
+                    summary ? "Summary" : "Progress", seconds, files, files / seconds,
+                    bytes / 1048576.0, bytes / 1048576.0 / seconds, cached.sum(), cacheMisses.sum(),
+                    failures.sum()));
+            if (summary) {
+                sb.append(String.format(Locale.ROOT, "%nHash latency (upper bound, us):"));
+                for (int i = 0; i < PERCENTILES.length; i++) {
+                    sb.append(String.format(Locale.ROOT, " %s=%d",
+                            PERCENTILE_NAMES[i], percentile(PERCENTILES[i]) / 1000));
+                }
+                for (SlowFile file : getSlowest()) {
+                    sb.append(String.format(Locale.ROOT, "%n  %10d us %s", file.nanos / 1000, file.path));
+                }
+            }
+            return sb.toString();
+        }
+        StringBuilder sb = new StringBuilder(String.format(Locale.ROOT,
+                "{\"type\":\"%s\",\"seconds\":%.3f,\"files\":%d,\"bytes\":%d,\"cached\":%d,\"cacheMisses\":%d,"
+                        + "\"failed\":%d,\"filesPerSecond\":%.1f,\"bytesPerSecond\":%.1f",
+                summary ? "summary" : "progress", seconds, files, bytes, cached.sum(), cacheMisses.sum(),
+                failures.sum(), files / seconds, bytes / seconds));
+        if (summary) {
+            sb.append(",\"latencyMicros\":{");
+            for (int i = 0; i < PERCENTILES.length; i++) {
+                sb.append(i == 0 ? "" : ",").append(String.format(Locale.ROOT, "\"%s\":%d",
+                        PERCENTILE_NAMES[i], percentile(PERCENTILES[i]) / 1000));
+            }
+            sb.append("},\"slowest\":[");
+            List<SlowFile> slowest = getSlowest();
+            for (int i = 0; i < slowest.size(); i++) {
+                sb.append(i == 0 ? "" : ",").append("{\"path\":\"");
+                appendJsonString(sb, slowest.get(i).path);
+                sb.append("\",\"micros\":").append(slowest.get(i).nanos / 1000).append('}');
+            }
+            sb.append(']');
+        }
+        return sb.append('}').toString();
+    }
+
+    private static void appendJsonString(StringBuilder sb, String s) {
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c == '"' || c == '\\') {
+                sb.append('\\').append(c);
+            } else if (c < 0x20) {
+                sb.append(String.format(Locale.ROOT, "\\u%04x", (int) c));
+            } else {
+                sb.append(c);
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        reporter.shutdownNow();
+        System.err.println(report(true));
+    }
+}
@@ -0,0 +1,104 @@
+package info.kgeorgiy.ja.nesterenko.walk;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+public class XxHash64 implements Hasher {
+    private static final long PRIME1 = 0x9E3779B185EBCA87L;
+    private static final long PRIME2 = 0xC2B2AE3D27D4EB4FL;
+    private static final long PRIME3 = 0x165667B19E3779F9L;
+    private static final long PRIME4 = 0x85EBCA77C2B2AE63L;
+    private static final long PRIME5 = 0x27D4EB2F165667C5L;
+    private static final int STRIPE = 32;
+
+    private long v1 = PRIME1 + PRIME2;
+    private long v2 = PRIME2;
+    private long v3 = 0;
+    private long v4 = -PRIME1;
+    private long length = 0;
+    private final ByteBuffer pending = ByteBuffer.allocate(STRIPE).order(ByteOrder.LITTLE_ENDIAN);
+
+    @Override
+    public void update(ByteBuffer buffer) {
+        ByteBuffer data = buffer.slice().order(ByteOrder.LITTLE_ENDIAN);
+        length += data.remaining();
+        buffer.position(buffer.limit());
+        if (pending.position() > 0) {
+            while (pending.hasRemaining() && data.hasRemaining()) {
+                pending.put(data.get());
+            }
+            if (pending.hasRemaining()) {
+                return;
+            }
+            consumeStripes(pending.flip());
+            pending.clear();
+        }
+        consumeStripes(data);
+        pending.put(data);
+    }
+
+    private void consumeStripes(ByteBuffer data) {
+        long v1 = this.v1;
+        long v2 = this.v2;
+        long v3 = this.v3;
+        long v4 = this.v4;
+        int i = data.position();
+        for (final int limit = data.limit() - STRIPE; i <= limit; i += STRIPE) {
+            v1 = round(v1, data.getLong(i));
+            v2 = round(v2, data.getLong(i + 8));
+            v3 = round(v3, data.getLong(i + 16));
+            v4 = round(v4, data.getLong(i + 24));
+        }
+        data.position(i);
+        this.v1 = v1;
+        this.v2 = v2;
+        this.v3 = v3;
+        this.v4 = v4;
+    }
+
+    private static long round(long acc, long input) {
+        return Long.rotateLeft(acc + input * PRIME2, 31) * PRIME1;
+    }
+
+    private static long mergeRound(long acc, long value) {
+        return (acc ^ round(0, value)) * PRIME1 + PRIME4;
+    }
+
+    @Override
+    public long getHash() {
+        long hash;
+        if (length >= STRIPE) {
+            hash = Long.rotateLeft(v1, 1) + Long.rotateLeft(v2, 7) + Long.rotateLeft(v3, 12) + Long.rotateLeft(v4, 18);
+            hash = mergeRound(hash, v1);
+            hash = mergeRound(hash, v2);
+            hash = mergeRound(hash, v3);
+            hash = mergeRound(hash, v4);
+        } else {
+            hash = PRIME5;
+        }
+        hash += length;
+
+        final int limit = pending.position();
+        int i = 0;
+        for (; i + 8 <= limit; i += 8) {
+            hash ^= round(0, pending.getLong(i));
+            hash = Long.rotateLeft(hash, 27) * PRIME1 + PRIME4;
+        }
+        if (i + 4 <= limit) {
+            hash ^= (pending.getInt(i) & 0xffff_ffffL) * PRIME1;
+            hash = Long.rotateLeft(hash, 23) * PRIME2 + PRIME3;
+            i += 4;
+        }
+        for (; i < limit; i++) {
+            hash ^= (pending.get(i) & 0xff) * PRIME5;
+            hash = Long.rotateLeft(hash, 11) * PRIME1;
+        }
+
+        hash ^= hash >>> 33;
+        hash *= PRIME2;
+        hash ^= hash >>> 29;
+        hash *= PRIME3;
+        hash ^= hash >>> 32;
+        return hash;
+    }
+}